@@ -5,27 +5,42 @@ import static org.firstinspires.ftc.teamcode.util.RuntimeMode.DEBUG;
 import com.arcrobotics.ftclib.controller.PIDFController;
 import com.arcrobotics.ftclib.hardware.motors.Motor;
 import com.qualcomm.robotcore.hardware.AnalogInput;
+import com.qualcomm.robotcore.hardware.DcMotorEx;
 import com.qualcomm.robotcore.hardware.HardwareMap;
 
 import org.firstinspires.ftc.robotcore.external.Telemetry;
 import org.firstinspires.ftc.teamcode.util.RobotConstants;
+import org.firstinspires.ftc.teamcodekt.components.hardware.AnalogPoller;
+import org.firstinspires.ftc.teamcodekt.components.hardware.CurrentMonitor;
+import org.firstinspires.ftc.teamcodekt.components.hardware.HardwareProfiler;
+import org.firstinspires.ftc.teamcodekt.components.hardware.HardwareSnapshot;
+import org.firstinspires.ftc.teamcodekt.components.hardware.OutputStage;
+import org.firstinspires.ftc.teamcodekt.components.scheduler.SchedulerClock;
 import org.firstinspires.ftc.teamcodekt.util.MU;
 
 public class Arm {
     private final Motor armMotor;
-    private final PIDFController armPID, armEncoderPID;
+    private final PIDFController armPID, armEncoderPID, armFusedPID;
+
+    private final ArmAngleEstimator estimator;
 
     private final AnalogInput sensor;
+    private final int pollerChannel;
 
     private double armCorrection;
 
     public boolean useEncoder;
 
+    private HardwareSnapshot snapshot;
+    private int positionChannel, sensorChannel;
+
     public Arm(HardwareMap hwMap) {
         armMotor = new Motor(hwMap, "AR", Motor.GoBILDA.RPM_84);
+        armMotor.motor = HardwareProfiler.wrap((DcMotorEx) armMotor.motor, "AR");
         armMotor.setZeroPowerBehavior(Motor.ZeroPowerBehavior.BRAKE);
         armMotor.setRunMode(Motor.RunMode.VelocityControl);
         armMotor.resetEncoder();
+        CurrentMonitor.register(hwMap, "AR");
 
         armPID = new PIDFController(
             RobotConstants.Arm.P,
@@ -39,15 +54,26 @@ public class Arm {
             RobotConstants.Arm.ENC_D,
             RobotConstants.Arm.ENC_F
         );
+        armFusedPID = new PIDFController(
+            RobotConstants.Arm.FUSED_P,
+            RobotConstants.Arm.FUSED_I,
+            RobotConstants.Arm.FUSED_D,
+            RobotConstants.Arm.FUSED_F
+        );
+
+        estimator = new ArmAngleEstimator();
 
         useEncoder = false;
 
-        sensor = hwMap.analogInput.get("ARM_ENC");
+        sensor = HardwareProfiler.wrap(hwMap.analogInput.get("ARM_ENC"), "ARM_ENC");
+        pollerChannel = AnalogPoller.register(sensor);
     }
 
     public void checkResetEncoder() {
-        if (MU.inRange(getArmPosition(), RobotConstants.Arm.VERTICAL, 3))
+        if (MU.inRange(getArmPosition(), RobotConstants.Arm.VERTICAL, 3)) {
             armMotor.resetEncoder();
+            estimator.reset();
+        }
     }
 
     public void setToRestingPos() {
@@ -80,8 +106,31 @@ public class Arm {
             : RobotConstants.Arm.FORWARDS_TELE;
     }
 
+    /**
+     * Reads the arm's encoder and analog sensor from the given snapshot once per tick, instead of
+     * on every call. Both are served from the snapshot's bulk read, so the sensor is as fresh as the
+     * encoder.
+     */
+    public void attachSnapshot(HardwareSnapshot snapshot) {
+        this.snapshot = snapshot;
+        positionChannel = snapshot.trackPosition(armMotor::getCurrentPosition);
+        sensorChannel = snapshot.trackAnalog(sensor::getVoltage);
+    }
+
+    public void attachOutput(OutputStage output) {
+        armMotor.motor = output.stage((DcMotorEx) armMotor.motor);
+    }
+
+    public int getEncoderPosition() {
+        return (snapshot != null)
+            ? snapshot.position(positionChannel)
+            : armMotor.getCurrentPosition();
+    }
+
     public double getArmRawPosition(){
-        return sensor.getVoltage();
+        return (snapshot != null)
+            ? snapshot.analog(sensorChannel)
+            : AnalogPoller.voltage(pollerChannel);
     }
 
     public double getArmPosition(){
@@ -89,13 +138,34 @@ public class Arm {
         return 2.5 * 480 * ((getArmRawPosition() - RobotConstants.Arm.VOLTAGE_BACKWARDS / (RobotConstants.Arm.VOLTAGE_FORWARDS - RobotConstants.Arm.VOLTAGE_BACKWARDS)) - 0.5);
     }
 
+    /**
+     * Gets the arm's position fused from the analog sensor and the encoder, in the analog sensor's
+     * units; as of the last update.
+     */
+    public double getFusedPosition() {
+        return estimator.getPosition();
+    }
+
+    /**
+     * Gets the arm's velocity, in the analog sensor's units per second; as of the last update.
+     */
+    public double getVelocity() {
+        return estimator.getVelocity();
+    }
+
     public void update(Telemetry telemetry) {
         update(telemetry, false);
     }
 
     public void update(Telemetry telemetry, boolean useEncoder) {
         this.useEncoder = useEncoder;
-        telemetry.addData("Encoder position", armMotor.getCurrentPosition());
+
+        int encoderPosition = getEncoderPosition();
+        telemetry.addData("Encoder position", encoderPosition);
+
+        double sensorPosition = getArmPosition();
+        estimator.update(encoderPosition, sensorPosition, SchedulerClock.nanoTime());
+        boolean useFused = RobotConstants.Arm.USE_FUSED_ESTIMATE && !useEncoder;
 
         if (DEBUG) {
             // Constantly set PIDF to allow for hot reloading, also some telemetry
@@ -105,11 +175,26 @@ public class Arm {
                 RobotConstants.Arm.D,
                 RobotConstants.Arm.F
             );
+            armFusedPID.setPIDF(
+                RobotConstants.Arm.FUSED_P,
+                RobotConstants.Arm.FUSED_I,
+                RobotConstants.Arm.FUSED_D,
+                RobotConstants.Arm.FUSED_F
+            );
+
+            telemetry.addData("Arm sensor position", sensorPosition);
+            telemetry.addData("Arm fused position", estimator.getPosition());
+            telemetry.addData("Arm velocity", estimator.getVelocity());
         }
 
-        double correction = (useEncoder)
-            ? armEncoderPID.calculate(armMotor.getCurrentPosition(), armCorrection)
-            : armPID.calculate(getArmPosition(), armCorrection);
+        double correction;
+
+        if (useEncoder)
+            correction = armEncoderPID.calculate(encoderPosition, armCorrection);
+        else if (useFused)
+            correction = armFusedPID.calculate(estimator.getPosition(), armCorrection);
+        else
+            correction = armPID.calculate(sensorPosition, armCorrection);
 
         armMotor.set(correction);
 
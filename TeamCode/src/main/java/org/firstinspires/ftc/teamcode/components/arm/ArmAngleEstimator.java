@@ -0,0 +1,89 @@
+package org.firstinspires.ftc.teamcode.components.arm;
+
+import org.firstinspires.ftc.teamcode.util.KalmanFilter;
+import org.firstinspires.ftc.teamcode.util.RobotConstants;
+
+/**
+ * Fuses the arm's absolute analog sensor with its motor's relative encoder into one low noise,
+ * drift free position (in the analog sensor's units, so the usual setpoints apply), plus a velocity.
+ *
+ * The encoder is precise and read every tick, but only relative, and loses its zero whenever the
+ * arm slips or the motor is reset. The analog sensor is absolute, but noisy. So the position is
+ * taken from the encoder, scaled by ENC_TO_SENSOR, plus an offset; the offset is the difference
+ * between the two sources, smoothed by a {@link KalmanFilter}, which slowly pulls the encoder's
+ * zero onto the analog sensor's. While the arm moves faster than FUSION_MAX_CORRECTION_VELOCITY,
+ * the offset is held, since the sensor lags the encoder.
+ *
+ * The velocity is the encoder's change per second, low pass filtered by VELOCITY_SMOOTHING.
+ *
+ * @author KG
+ */
+public class ArmAngleEstimator {
+    private KalmanFilter offsetFilter;
+
+    private double offset;
+    private double position;
+    private double velocity;
+
+    private int lastEncoder;
+    private long lastNanos;
+    private boolean isInitialized;
+
+    public ArmAngleEstimator() {
+        reset();
+    }
+
+    /**
+     * Feeds in the latest readings; call once per tick.
+     * @param encoderPosition The motor encoder's position, in ticks.
+     * @param sensorPosition The analog sensor's position, as from {@link Arm#getArmPosition()}.
+     * @param nanos The time the readings were taken, in nanoseconds.
+     */
+    public void update(int encoderPosition, double sensorPosition, long nanos) {
+        double scale = RobotConstants.Arm.ENC_TO_SENSOR;
+
+        if (!isInitialized) {
+            offset = offsetFilter.filter(sensorPosition - scale * encoderPosition);
+            velocity = 0;
+            isInitialized = true;
+        } else {
+            double dt = (nanos - lastNanos) / 1e9;
+            if (dt > 0) {
+                double measured = scale * (encoderPosition - lastEncoder) / dt;
+                velocity += (measured - velocity) * (1 - RobotConstants.Arm.VELOCITY_SMOOTHING);
+            }
+
+            if (Math.abs(velocity) <= RobotConstants.Arm.FUSION_MAX_CORRECTION_VELOCITY) {
+                offset = offsetFilter.filter(sensorPosition - scale * encoderPosition);
+            }
+        }
+
+        position = offset + scale * encoderPosition;
+        lastEncoder = encoderPosition;
+        lastNanos = nanos;
+    }
+
+    /**
+     * Starts over from the next reading; call whenever the encoder is reset.
+     */
+    public void reset() {
+        offsetFilter = new KalmanFilter(
+            RobotConstants.Arm.FUSION_PROCESS_NOISE,
+            RobotConstants.Arm.FUSION_MEASUREMENT_NOISE);
+        isInitialized = false;
+    }
+
+    /**
+     * Gets the fused position, in the analog sensor's units.
+     */
+    public double getPosition() {
+        return position;
+    }
+
+    /**
+     * Gets the arm's velocity, in the analog sensor's units per second.
+     */
+    public double getVelocity() {
+        return velocity;
+    }
+}
@@ -4,12 +4,15 @@ import com.qualcomm.robotcore.hardware.AnalogInput;
 import com.qualcomm.robotcore.hardware.HardwareMap;
 
 import org.firstinspires.ftc.robotcore.external.Telemetry;
+import org.firstinspires.ftc.teamcodekt.components.hardware.AnalogPoller;
+import org.firstinspires.ftc.teamcodekt.components.hardware.HardwareProfiler;
 
 import java.text.DecimalFormat;
 
 public class ShortRangeSensor {
     private final String name;
     private final AnalogInput sensor;
+    private final int channel;
     private Telemetry telemetry;
     private static final DecimalFormat fmt;
 
@@ -24,13 +27,15 @@ public class ShortRangeSensor {
 
     public ShortRangeSensor(HardwareMap hwMap, String name) {
         this.name = name;
-        sensor = hwMap.analogInput.get(name);
+        sensor = HardwareProfiler.wrap(hwMap.analogInput.get(name), name);
+        channel = AnalogPoller.register(sensor);
     }
 
     public ShortRangeSensor(HardwareMap hwMap, String name, Telemetry telemetry) {
         this.name = name;
         this.telemetry = telemetry;
-        sensor = hwMap.analogInput.get(name);
+        sensor = HardwareProfiler.wrap(hwMap.analogInput.get(name), name);
+        channel = AnalogPoller.register(sensor);
     }
 
     public String getName(){
@@ -38,13 +43,17 @@ public class ShortRangeSensor {
     }
 
     public double getDistance() {
-        double distance = model(sensor.getVoltage());
+        double distance = model(AnalogPoller.voltage(channel));
         if(telemetry != null)
             telemetry.addData("Sensor reading", distance);
 
         return distance;
     }
 
+    public double getFilteredDistance() {
+        return model(AnalogPoller.filtered(channel));
+    }
+
     public double model(double input){
         return 239.664*input-37.1034;
     }
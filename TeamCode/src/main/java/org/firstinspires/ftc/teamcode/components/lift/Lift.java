@@ -8,9 +8,12 @@ import com.qualcomm.robotcore.hardware.DcMotorEx;
 import com.qualcomm.robotcore.hardware.HardwareMap;
 
 import org.firstinspires.ftc.robotcore.external.Telemetry;
-import org.firstinspires.ftc.robotcore.external.navigation.CurrentUnit;
 import org.firstinspires.ftc.teamcode.components.voltagescaler.VoltageScaler;
 import org.firstinspires.ftc.teamcode.util.RobotConstants;
+import org.firstinspires.ftc.teamcodekt.components.hardware.CurrentMonitor;
+import org.firstinspires.ftc.teamcodekt.components.hardware.HardwareProfiler;
+import org.firstinspires.ftc.teamcodekt.components.hardware.HardwareSnapshot;
+import org.firstinspires.ftc.teamcodekt.components.hardware.OutputStage;
 import org.firstinspires.ftc.teamcodekt.util.MU;
 
 public class Lift {
@@ -22,31 +25,53 @@ public class Lift {
     private final PIDFController liftPID;
     private final PIDFController liftIncreasingPID;
 
+    private final LiftGainSchedule gainSchedule;
+    private boolean isScheduled;
+
+    private final LiftMotionController motionController;
+    private boolean isProfiled;
+
     private final VoltageScaler voltageScaler;
 
+    private HardwareSnapshot snapshot;
+    private int positionChannel;
+
+    private final int currentA, currentB, currentC;
+
     public Lift(HardwareMap hwMap, VoltageScaler voltageScaler) {
         this.voltageScaler = voltageScaler;
 
         liftA = new Motor(hwMap, "L1", Motor.GoBILDA.RPM_435);
+        liftA.motor = HardwareProfiler.wrap((DcMotorEx) liftA.motor, "L1");
         liftA.setZeroPowerBehavior(Motor.ZeroPowerBehavior.BRAKE);
         liftA.setRunMode(Motor.RunMode.VelocityControl);
         liftA.resetEncoder();
 
         liftB = new Motor(hwMap, "L2", Motor.GoBILDA.RPM_435);
+        liftB.motor = HardwareProfiler.wrap((DcMotorEx) liftB.motor, "L2");
         liftB.setZeroPowerBehavior(Motor.ZeroPowerBehavior.BRAKE);
         liftB.setRunMode(Motor.RunMode.VelocityControl);
         liftB.setInverted(true);
         liftB.resetEncoder();
 
         liftC = new Motor(hwMap, "L3", Motor.GoBILDA.RPM_435);
+        liftC.motor = HardwareProfiler.wrap((DcMotorEx) liftC.motor, "L3");
         liftC.setZeroPowerBehavior(Motor.ZeroPowerBehavior.BRAKE);
         liftC.setRunMode(Motor.RunMode.VelocityControl);
         liftC.resetEncoder();
 
+        // The lift's climb is what browns the robot out, so it's read on every sample
+        currentA = CurrentMonitor.register(hwMap, "L1", true);
+        currentB = CurrentMonitor.register(hwMap, "L2", true);
+        currentC = CurrentMonitor.register(hwMap, "L3", true);
+
         liftPID = new PIDFController(RobotConstants.Lift.P, RobotConstants.Lift.I, RobotConstants.Lift.D, RobotConstants.Lift.F);
         liftIncreasingPID = new PIDFController(
             RobotConstants.Lift.INCREASING_P, RobotConstants.Lift.INCREASING_I,
             RobotConstants.Lift.INCREASING_D, RobotConstants.Lift.INCREASING_F);
+
+        gainSchedule = new LiftGainSchedule();
+        motionController = new LiftMotionController();
     }
 
     public void setFloating() {
@@ -63,26 +88,44 @@ public class Lift {
 
     public void goToZero() {
         prevLiftHeight = liftHeight;
-        liftHeight = RobotConstants.Lift.ZERO;
+        setTarget(RobotConstants.Lift.ZERO);
     }
 
     public void goToLow() {
         prevLiftHeight = liftHeight;
-        liftHeight = RobotConstants.Lift.LOW;
+        setTarget(RobotConstants.Lift.LOW);
     }
 
     public void goToMid() {
         prevLiftHeight = liftHeight;
-        liftHeight = RobotConstants.Lift.MID;
+        setTarget(RobotConstants.Lift.MID);
     }
 
     public void goToHigh() {
         prevLiftHeight = liftHeight;
-        liftHeight = RobotConstants.Lift.HIGH;
+        setTarget(RobotConstants.Lift.HIGH);
+    }
+
+    /**
+     * Reads the lift's position from the given snapshot once per tick, instead of from the motor
+     * on every call.
+     */
+    public void attachSnapshot(HardwareSnapshot snapshot) {
+        this.snapshot = snapshot;
+        positionChannel = snapshot.trackPosition(liftA::getCurrentPosition);
+    }
+
+    public void attachOutput(OutputStage output) {
+        // The powers are already scaled by the power limit in update, so the stage mustn't again
+        liftA.motor = output.stage((DcMotorEx) liftA.motor, false);
+        liftB.motor = output.stage((DcMotorEx) liftB.motor, false);
+        liftC.motor = output.stage((DcMotorEx) liftC.motor, false);
     }
 
     public int getCurrentPos() {
-        return liftA.getCurrentPosition();
+        return (snapshot != null)
+            ? snapshot.position(positionChannel)
+            : liftA.getCurrentPosition();
     }
 
 
@@ -101,18 +144,15 @@ public class Lift {
     }
 
     public double getACurrent() {
-        DcMotorEx motorObj = (DcMotorEx) liftA.motor;
-        return motorObj.getCurrent(CurrentUnit.AMPS);
+        return CurrentMonitor.amps(currentA);
     }
 
     public double getBCurrent() {
-        DcMotorEx motorObj = (DcMotorEx) liftB.motor;
-        return motorObj.getCurrent(CurrentUnit.AMPS);
+        return CurrentMonitor.amps(currentB);
     }
 
     public double getCCurrent() {
-        DcMotorEx motorObj = (DcMotorEx) liftC.motor;
-        return motorObj.getCurrent(CurrentUnit.AMPS);
+        return CurrentMonitor.amps(currentC);
     }
 
     public double getAPower() {
@@ -131,29 +171,52 @@ public class Lift {
     }
 
     public void update(Telemetry telemetry, boolean aggressiveAscendance) {
+        setProfiled(RobotConstants.Lift.USE_MOTION_PROFILE);
+
+        if (isProfiled) {
+            updateProfiled(telemetry);
+            return;
+        }
+
         double voltageCorrection = voltageScaler.getVoltageCorrection();
         telemetry.addData("Voltage PIDF correction for lift", voltageCorrection);
 
+        int position = getCurrentPos();
+
         // Allows hot reloading for PIDF and outputs some telemetry
         if (DEBUG) {
             liftPID.setPIDF(RobotConstants.Lift.P, RobotConstants.Lift.I, RobotConstants.Lift.D, RobotConstants.Lift.F);
 
-            telemetry.addData("Motor position", liftA.getCurrentPosition());
+            telemetry.addData("Motor position", position);
         }
 
         double correction;
 
+        // The schedule overwrites liftPID's gains, so put the constant ones back once it's turned off
+        if (isScheduled && !RobotConstants.Lift.USE_GAIN_SCHEDULE) {
+            liftPID.setPIDF(RobotConstants.Lift.P, RobotConstants.Lift.I, RobotConstants.Lift.D, RobotConstants.Lift.F);
+        }
+        isScheduled = RobotConstants.Lift.USE_GAIN_SCHEDULE;
+
+        if (isScheduled) {
+            // The schedule compensates for the battery through its gains, so the setpoint isn't offset
+            gainSchedule.apply(liftPID, position, liftHeight);
+            correction = liftPID.calculate(position, liftHeight);
+        }
         // If you want to increase lift height aggressively,
         // and the previous height the lift was set to was below the current target,
         // and the lift height is not within +/- 50 ticks of the target, use aggressive ascendance
-        if (aggressiveAscendance && prevLiftHeight < liftHeight && !MU.inRange(getCurrentPos(), liftHeight, 50))
-            correction = liftIncreasingPID.calculate(liftA.getCurrentPosition(), liftHeight + voltageCorrection);
+        else if (aggressiveAscendance && prevLiftHeight < liftHeight && !MU.inRange(position, liftHeight, 50))
+            correction = liftIncreasingPID.calculate(position, liftHeight + voltageCorrection);
             // In any other case, use default PIDF
         else
-            correction = liftPID.calculate(liftA.getCurrentPosition(), liftHeight + voltageCorrection);
+            correction = liftPID.calculate(position, liftHeight + voltageCorrection);
 
         telemetry.addData("Correction amount", correction);
 
+        // Back off while a brownout is predicted
+        correction *= CurrentMonitor.getPowerLimit();
+
         liftA.set(correction);
         liftB.set(correction);
         liftC.set(correction);
@@ -161,11 +224,99 @@ public class Lift {
         telemetry.addData("Lift set position", liftHeight);
     }
 
+    /**
+     * Follows the target's motion profile, with feedforward, instead of chasing the target with
+     * the PIDF.
+     */
+    private void updateProfiled(Telemetry telemetry) {
+        int position = getCurrentPos();
+        motionController.setTarget(liftHeight, position);
+
+        if (DEBUG) {
+            motionController.reloadGains();
+
+            telemetry.addData("Motor position", position);
+            telemetry.addData("Profile position", motionController.getState().getX());
+        }
+
+        double power = motionController.calculate(position);
+        telemetry.addData("Correction amount", power);
+
+        // Back off while a brownout is predicted
+        power *= CurrentMonitor.getPowerLimit();
+
+        liftA.set(power);
+        liftB.set(power);
+        liftC.set(power);
+
+        telemetry.addData("Lift set position", liftHeight);
+    }
+
+    /**
+     * Switches the motors between raw power, for the profiled controller's feedforward, and the
+     * velocity control the PIDF was tuned with. Only touches the motors on a change, since
+     * switching resets their velocity controllers. The motion controller's profile is dropped
+     * either way, so that profiling picks up from wherever the PIDF left the lift.
+     */
+    private void setProfiled(boolean profiled) {
+        if (profiled == isProfiled) {
+            return;
+        }
+        isProfiled = profiled;
+        motionController.reset();
+
+        Motor.RunMode mode = profiled ? Motor.RunMode.RawPower : Motor.RunMode.VelocityControl;
+        liftA.setRunMode(mode);
+        liftB.setRunMode(mode);
+        liftC.setRunMode(mode);
+    }
+
+    private void setTarget(int height) {
+        liftHeight = height;
+
+        // The PIDF only needs the height; profiles are only worth building when they're followed
+        if (isProfiled) {
+            motionController.setTarget(height, getCurrentPos());
+        }
+    }
+
+    /**
+     * Checks whether the lift is within AT_TARGET_TOLERANCE of the target, and, when profiled, has
+     * finished its profile.
+     */
+    public boolean isAtTarget() {
+        return isProfiled
+            ? motionController.isAtTarget(getCurrentPos())
+            : Math.abs(getCurrentPos() - liftHeight) <= RobotConstants.Lift.AT_TARGET_TOLERANCE;
+    }
+
+    /**
+     * Gets the time left until the lift's motion profile reaches the target, in seconds. When the
+     * PIDF is in use there's no profile being followed, so this is only an estimate: {@code 0} once
+     * at the target, or else how long a profile from the lift's position would take, ignoring that
+     * it may already be moving.
+     */
+    public double timeToTarget() {
+        if (isProfiled) {
+            return motionController.timeToTarget();
+        }
+        return isAtTarget() ? 0 : motionController.durationTo(liftHeight, getCurrentPos());
+    }
+
+    /**
+     * Gets how long moving to the given height would take, in seconds, without moving there; for
+     * timing markers against the lift. Like {@link #timeToTarget()}, only an estimate when the PIDF
+     * is in use.
+     */
+    public double timeToReach(int height) {
+        return motionController.durationTo(height, getCurrentPos());
+    }
+
     public int getHeight() {
         return liftHeight;
     }
 
     public void setHeight(int height) {
-        liftHeight = Math.max(0, Math.min(height, 3000));
+        setTarget(Math.max(0, Math.min(height, 3000)));
     }
 }
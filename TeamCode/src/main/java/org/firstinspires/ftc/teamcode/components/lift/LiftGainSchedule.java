@@ -0,0 +1,95 @@
+package org.firstinspires.ftc.teamcode.components.lift;
+
+import com.arcrobotics.ftclib.controller.PIDFController;
+import com.qualcomm.robotcore.hardware.PIDFCoefficients;
+
+import org.firstinspires.ftc.teamcode.util.RobotConstants;
+import org.firstinspires.ftc.teamcodekt.components.hardware.BatteryVoltage;
+
+/**
+ * Picks the lift's PIDF gains from the table in {@link RobotConstants.Lift}, by height, direction,
+ * and battery voltage, instead of switching between two fixed sets.
+ *
+ * Gains are given at three heights (the schedule's low, mid and high points) for both ascending and
+ * descending, and linearly interpolated by the lift's position in between (held at the ends).
+ * Within DIRECTION_BLEND_TICKS of the target, the ascending and descending gains are blended
+ * by the error, so the gains never jump as the lift settles or overshoots. Finally, P and F are
+ * scaled up as the battery sags below the reference voltage, by VOLTAGE_GAIN_SCALING (0 to
+ * disable, 1 to fully compensate). This replaces the voltage scaler's setpoint offset, which the
+ * lift leaves out while the schedule is in use.
+ *
+ * The table is read on every call, so it can be edited live on the dashboard.
+ *
+ * @author KG
+ */
+public class LiftGainSchedule {
+    private final PIDFCoefficients ascending = new PIDFCoefficients();
+    private final PIDFCoefficients descending = new PIDFCoefficients();
+    private final PIDFCoefficients gains = new PIDFCoefficients();
+
+    /**
+     * Sets the given controller's gains for the lift's current state.
+     * @param pid The controller to update; its accumulated state is kept.
+     * @param position The lift's measured position, in ticks.
+     * @param target The lift's target, in ticks.
+     */
+    public void apply(PIDFController pid, int position, int target) {
+        PIDFCoefficients gains = gainsFor(position, target);
+        pid.setPIDF(gains.p, gains.i, gains.d, gains.f);
+    }
+
+    /**
+     * Gets the gains for the lift's current state. The returned object is reused by the next call.
+     */
+    public PIDFCoefficients gainsFor(int position, int target) {
+        interpolate(ascending, position,
+            RobotConstants.Lift.ASCENDING_LOW, RobotConstants.Lift.ASCENDING_MID, RobotConstants.Lift.ASCENDING_HIGH);
+        interpolate(descending, position,
+            RobotConstants.Lift.DESCENDING_LOW, RobotConstants.Lift.DESCENDING_MID, RobotConstants.Lift.DESCENDING_HIGH);
+
+        double blend = RobotConstants.Lift.DIRECTION_BLEND_TICKS;
+        double up = (blend > 0)
+            ? clamp((target - position + blend) / (2 * blend))
+            : (target >= position ? 1 : 0);
+
+        lerp(gains, descending, ascending, up);
+
+        double voltageScale = 1 + RobotConstants.Lift.VOLTAGE_GAIN_SCALING
+            * (RobotConstants.Lift.SCHEDULE_REFERENCE_VOLTS / BatteryVoltage.getVolts() - 1);
+
+        gains.p *= voltageScale;
+        gains.f *= voltageScale;
+        return gains;
+    }
+
+    /**
+     * Interpolates the gains at the given position between the schedule's three heights.
+     */
+    private static void interpolate(PIDFCoefficients out, int position,
+                                    PIDFCoefficients low, PIDFCoefficients mid, PIDFCoefficients high) {
+        int lowHeight = RobotConstants.Lift.SCHEDULE_LOW_HEIGHT;
+        int midHeight = RobotConstants.Lift.SCHEDULE_MID_HEIGHT;
+        int highHeight = RobotConstants.Lift.SCHEDULE_HIGH_HEIGHT;
+
+        if (position <= midHeight) {
+            lerp(out, low, mid, fraction(position, lowHeight, midHeight));
+        } else {
+            lerp(out, mid, high, fraction(position, midHeight, highHeight));
+        }
+    }
+
+    private static double fraction(int position, int from, int to) {
+        return (to > from) ? clamp((double) (position - from) / (to - from)) : 1;
+    }
+
+    private static void lerp(PIDFCoefficients out, PIDFCoefficients a, PIDFCoefficients b, double t) {
+        out.p = a.p + (b.p - a.p) * t;
+        out.i = a.i + (b.i - a.i) * t;
+        out.d = a.d + (b.d - a.d) * t;
+        out.f = a.f + (b.f - a.f) * t;
+    }
+
+    private static double clamp(double x) {
+        return Math.max(0, Math.min(x, 1));
+    }
+}
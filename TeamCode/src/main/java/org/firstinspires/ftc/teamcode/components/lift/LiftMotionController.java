@@ -0,0 +1,142 @@
+package org.firstinspires.ftc.teamcode.components.lift;
+
+import com.acmerobotics.roadrunner.profile.MotionProfile;
+import com.acmerobotics.roadrunner.profile.MotionProfileGenerator;
+import com.acmerobotics.roadrunner.profile.MotionState;
+import com.arcrobotics.ftclib.controller.PIDController;
+
+import org.firstinspires.ftc.teamcode.util.RobotConstants;
+import org.firstinspires.ftc.teamcodekt.components.hardware.BatteryVoltage;
+import org.firstinspires.ftc.teamcodekt.components.scheduler.SchedulerClock;
+
+/**
+ * Moves the lift along a motion profile, instead of stepping its target and letting a PIDF chase it.
+ *
+ * Every new target starts a trapezoidal profile (or an S-curve, if MAX_JERK is non-zero) from
+ * wherever the previous one had got to, so retargeting mid-move (e.g. manual adjustment) stays
+ * smooth. Each tick, the power is the kS/kG/kV/kA feedforward for the profile's current state,
+ * scaled for the battery voltage, plus a PID on the distance from the profile's position.
+ *
+ * Time is kept by the {@link SchedulerClock}, so profiles play out on the simulator's virtual clock
+ * as well.
+ *
+ * @author KG
+ */
+public class LiftMotionController {
+    private final PIDController pid;
+
+    private MotionProfile profile;
+    private long profileStartNanos;
+    private int target;
+
+    public LiftMotionController() {
+        pid = new PIDController(
+            RobotConstants.Lift.PROFILE_P, RobotConstants.Lift.PROFILE_I, RobotConstants.Lift.PROFILE_D);
+    }
+
+    /**
+     * Starts a new profile to the given target, unless it's already the target.
+     * @param target The height to move to, in ticks.
+     * @param position The lift's measured position, used as the start if no profile has run yet.
+     */
+    public void setTarget(int target, int position) {
+        if (profile != null && target == this.target) {
+            return;
+        }
+
+        MotionState start = (profile != null)
+            ? profile.get(elapsedSeconds())
+            : new MotionState(position, 0, 0, 0);
+
+        this.target = target;
+        profile = generate(start, target);
+        profileStartNanos = SchedulerClock.nanoTime();
+    }
+
+    /**
+     * Gets the motor power for this tick.
+     * @param position The lift's measured position, in ticks.
+     */
+    public double calculate(int position) {
+        if (profile == null) {
+            setTarget(position, position);
+        }
+
+        MotionState state = getState();
+
+        double feedforward = RobotConstants.Lift.kG
+            + RobotConstants.Lift.kV * state.getV()
+            + RobotConstants.Lift.kA * state.getA()
+            + RobotConstants.Lift.kS * Math.signum(state.getV());
+
+        feedforward *= BatteryVoltage.NOMINAL_VOLTS / BatteryVoltage.getVolts();
+
+        return feedforward + pid.calculate(position, state.getX());
+    }
+
+    /**
+     * Drops the current profile, so the next one starts from the lift's measured position; call
+     * whenever the lift has been moved by something else in the meantime.
+     */
+    public void reset() {
+        profile = null;
+        pid.reset();
+    }
+
+    /**
+     * Reloads the PID gains from {@link RobotConstants.Lift}.
+     */
+    public void reloadGains() {
+        pid.setPID(RobotConstants.Lift.PROFILE_P, RobotConstants.Lift.PROFILE_I, RobotConstants.Lift.PROFILE_D);
+    }
+
+    /**
+     * Gets where the profile says the lift should be right now.
+     */
+    public MotionState getState() {
+        return profile.get(elapsedSeconds());
+    }
+
+    public int getTarget() {
+        return target;
+    }
+
+    /**
+     * Gets the time left until the profile reaches its target, in seconds; {@code 0} once it has.
+     */
+    public double timeToTarget() {
+        return (profile != null)
+            ? Math.max(0, profile.duration() - elapsedSeconds())
+            : 0;
+    }
+
+    /**
+     * Gets how long a move from where the profile is now (or from rest at the given position, if
+     * there's no profile) to the given height would take, in seconds, without starting it.
+     */
+    public double durationTo(int height, int position) {
+        MotionState start = (profile != null)
+            ? profile.get(elapsedSeconds())
+            : new MotionState(position, 0, 0, 0);
+
+        return generate(start, height).duration();
+    }
+
+    /**
+     * Checks whether the profile has finished, and the lift is within AT_TARGET_TOLERANCE of it.
+     */
+    public boolean isAtTarget(int position) {
+        return timeToTarget() == 0
+            && Math.abs(position - target) <= RobotConstants.Lift.AT_TARGET_TOLERANCE;
+    }
+
+    private double elapsedSeconds() {
+        return (SchedulerClock.nanoTime() - profileStartNanos) / 1e9;
+    }
+
+    private static MotionProfile generate(MotionState start, int target) {
+        return MotionProfileGenerator.generateSimpleMotionProfile(
+            start, new MotionState(target, 0, 0, 0),
+            RobotConstants.Lift.MAX_VEL, RobotConstants.Lift.MAX_ACCEL, RobotConstants.Lift.MAX_JERK);
+    }
+}
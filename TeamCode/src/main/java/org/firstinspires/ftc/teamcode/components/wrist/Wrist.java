@@ -3,17 +3,30 @@ package org.firstinspires.ftc.teamcode.components.wrist;
 import com.arcrobotics.ftclib.hardware.ServoEx;
 import com.arcrobotics.ftclib.hardware.SimpleServo;
 import com.qualcomm.robotcore.hardware.HardwareMap;
+import com.qualcomm.robotcore.hardware.Servo;
 
 import org.firstinspires.ftc.robotcore.external.navigation.AngleUnit;
 import org.firstinspires.ftc.teamcode.util.RobotConstants;
+import org.firstinspires.ftc.teamcodekt.components.hardware.HardwareProfiler;
+import org.firstinspires.ftc.teamcodekt.components.hardware.OutputStage;
 
 public class Wrist {
     private final ServoEx wristServo;
+    private final Servo rawServo;
+
+    private OutputStage output;
+    private int outputChannel;
 
     private double wristPosition;
 
     public Wrist(HardwareMap hardwareMap) {
         wristServo = new SimpleServo(hardwareMap, "WR", 0, 180, AngleUnit.DEGREES);
+        rawServo = HardwareProfiler.wrap(hardwareMap.servo.get("WR"), "WR");
+    }
+
+    public void attachOutput(OutputStage output) {
+        this.output = output;
+        outputChannel = output.addServo(rawServo);
     }
 
     public void setToRestingPos() {
@@ -29,6 +42,10 @@ public class Wrist {
     }
 
     public void update() {
-        wristServo.setPosition(wristPosition);
+        if (output != null) {
+            output.setPosition(outputChannel, wristPosition);
+        } else {
+            wristServo.setPosition(wristPosition);
+        }
     }
 }
@@ -7,6 +7,8 @@ import com.qualcomm.robotcore.eventloop.opmode.Autonomous;
 import org.firstinspires.ftc.teamcode.roadrunner.trajectorysequence.TrajectorySequence;
 import org.firstinspires.ftc.teamcode.roadrunner.trajectorysequence.TrajectorySequenceBuilder;
 import org.firstinspires.ftc.teamcode.util.RobotConstants;
+import org.firstinspires.ftc.teamcodekt.components.mechanism.MechanismPlanner;
+import org.firstinspires.ftc.teamcodekt.components.mechanism.MechanismPose;
 import org.firstinspires.ftc.teamcodekt.components.scheduler.Scheduler;
 
 import java.util.function.BiFunction;
@@ -20,8 +22,8 @@ public class LM3_Left extends RougeBaseAuto {
     private int cycleNumber;
     private int signalZone;
 
-    private Runnable armPosFunction;
-    private Runnable wristPosFunction;
+    private MechanismPlanner planner;
+    private Runnable mechanismFunction;
 
     private static final int[] liftOffsets = {
         RobotConstants.Lift.AUTO_INTAKE_1,
@@ -34,15 +36,21 @@ public class LM3_Left extends RougeBaseAuto {
     public void runOpMode() throws InterruptedException {
         initHardware();
 
-        armPosFunction = arm::setToRestingPos;
-        wristPosFunction = wrist::setToRestingPos;
+        planner = new MechanismPlanner(lift, arm, wrist);
+
+        mechanismFunction = () -> {
+            arm.setToRestingPos();
+            wrist.setToRestingPos();
+        };
 
         Scheduler.beforeEach(() -> {
-            armPosFunction.run();
-            wristPosFunction.run();
+            mechanismFunction.run();
         });
 
         signalZone = waitForStartWithVision();
+        if (recorder != null) {
+            recorder.trackInt(() -> signalZone);
+        }
         telemetry.addData("Final signal zone", signalZone);
         telemetry.update();
 
@@ -61,9 +69,7 @@ public class LM3_Left extends RougeBaseAuto {
     private void createAndFollowPreload(Pose2d startPose) {
         createAndFollowTrajectory(startPose, (builder, endPose) -> builder
             .addTemporalMarker(() -> {
-                lift.setHeight(RobotConstants.Lift.HIGH);
-                wristPosFunction = wrist::setToForwardsPos;
-                armPosFunction = arm::setToForwardsAutoPos;
+                mechanismFunction = planner.plan(MechanismPose.forwardsAuto(RobotConstants.Lift.HIGH));
             })
 
             .splineTo(cmVector(-91, 50), rad(90))
@@ -113,12 +119,13 @@ public class LM3_Left extends RougeBaseAuto {
 
     private void createAndFollowIntakeCycle(Pose2d startPose) {
         createAndFollowTrajectory(startPose, (builder, endPose) -> builder
+            // The planner holds the lift at SWING_MIN_LIFT_HEIGHT until the arm is past vertical,
+            // but from the deposit height the arm gets there (~.3s) well before the lift comes down
+            // to the hold (~.9s), so the lift is retargeted on its way down and reaches the intake
+            // height as it did before; the offsets stand as tuned
             .UNSTABLE_addTemporalMarkerOffset(AutoData.RETRACT_OFFSET, () -> {
                 claw.openForIntakeNarrow();
-                lift.setHeight(liftOffsets[cycleNumber]);
-
-                armPosFunction = arm::setToBackwardsAutoPos;
-                wristPosFunction = wrist::setToBackwardsPos;
+                mechanismFunction = planner.plan(MechanismPose.backwardsAuto(liftOffsets[cycleNumber]));
             })
 
             .setReversed(true)
@@ -137,12 +144,7 @@ public class LM3_Left extends RougeBaseAuto {
             })
 
             .UNSTABLE_addTemporalMarkerOffset(AutoData.INTAKE_LIFT_OFFSET, () -> {
-                lift.setHeight(RobotConstants.Lift.HIGH);
-            })
-
-            .UNSTABLE_addTemporalMarkerOffset(AutoData.INTAKE_LIFT_OFFSET, () -> {
-                armPosFunction = arm::setToForwardsAutoPos;
-                wristPosFunction = wrist::setToForwardsPos;
+                mechanismFunction = planner.plan(MechanismPose.forwardsAuto(RobotConstants.Lift.HIGH));
             })
 
             .waitSeconds(AutoData.INTAKE_DELAY + 0.125)
@@ -172,10 +174,7 @@ public class LM3_Left extends RougeBaseAuto {
         createAndFollowTrajectory(startPose, (builder, endPose) -> builder
             .UNSTABLE_addTemporalMarkerOffset(AutoData.RETRACT_OFFSET, () -> {
                 claw.openForIntakeNarrow();
-                lift.setHeight(RobotConstants.Lift.AUTO_INTAKE_5);
-
-                armPosFunction = arm::setToBackwardsAutoPos;
-                wristPosFunction = wrist::setToBackwardsPos;
+                mechanismFunction = planner.plan(MechanismPose.backwardsAuto(RobotConstants.Lift.AUTO_INTAKE_5));
             })
 
             .setReversed(true)
@@ -194,9 +193,7 @@ public class LM3_Left extends RougeBaseAuto {
     private void createAndFollowPark(Pose2d startPose) {
         createAndFollowTrajectory(startPose, (builder, endPose) -> {
             builder.UNSTABLE_addTemporalMarkerOffset(0.05, () -> {
-                lift.goToZero();
-                armPosFunction = arm::setToRestingPos;
-                wristPosFunction = wrist::setToRestingPos;
+                mechanismFunction = planner.plan(MechanismPose.resting(RobotConstants.Lift.ZERO));
             });
 
             switch (signalZone) {
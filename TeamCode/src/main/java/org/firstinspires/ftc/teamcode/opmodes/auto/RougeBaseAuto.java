@@ -14,6 +14,9 @@ import org.firstinspires.ftc.teamcode.components.wrist.Wrist;
 import org.firstinspires.ftc.teamcode.pipelines.AprilTagDetectionPipeline;
 import org.firstinspires.ftc.teamcode.pipelines.BasePoleDetector;
 import org.firstinspires.ftc.teamcode.roadrunner.drive.SampleMecanumDrive;
+import org.firstinspires.ftc.teamcode.util.RobotConstants;
+import org.firstinspires.ftc.teamcodekt.components.hardware.InputRecorder;
+import org.firstinspires.ftc.teamcodekt.util.InitOrchestrator;
 import org.openftc.apriltag.AprilTagDetection;
 import org.openftc.easyopencv.OpenCvCamera;
 import org.openftc.easyopencv.OpenCvCameraFactory;
@@ -31,6 +34,7 @@ public abstract class RougeBaseAuto extends LinearOpMode {
     protected Lift lift;
     protected VoltageScaler voltageScaler;
     protected ShortRangeSensor frontSensor;
+    protected InputRecorder recorder;
 
 
     //************
@@ -58,40 +62,59 @@ public abstract class RougeBaseAuto extends LinearOpMode {
     private static final int THRESHOLD_NUM_FRAMES_NO_DETECTION_BEFORE_LOW_DECIMATION = 4;
 
 
-    protected void initHardware() {
+    /**
+     * Builds the robot's hardware, running independent subsystems concurrently (see
+     * {@link InitOrchestrator}); the camera is opened as early as possible, since it's the slowest.
+     */
+    protected void initHardware() throws InterruptedException {
 //        telemetry.setMsTransmissionInterval(50);
 
-        drive = new SampleMecanumDrive(hardwareMap);
-
-        voltageScaler = new VoltageScaler(hardwareMap);
-        claw = new Claw(hardwareMap);
-        intake = new Intake(hardwareMap);
-        arm = new Arm(hardwareMap);
-        wrist = new Wrist(hardwareMap);
-        lift = new Lift(hardwareMap, voltageScaler);
-        frontSensor = new ShortRangeSensor(hardwareMap, "F_USDS", telemetry);
+        InitOrchestrator init = new InitOrchestrator();
 
         //***************************
         // Set up camera and pipeline
         //***************************
-        int cameraMonitorViewId = hardwareMap.appContext.getResources().getIdentifier("cameraMonitorViewId", "id", hardwareMap.appContext.getPackageName());
-        camera = OpenCvCameraFactory.getInstance().createWebcam(hardwareMap.get(WebcamName.class, "Webcam 1"), cameraMonitorViewId);
-        aprilTagDetectionPipeline = new AprilTagDetectionPipeline(tagsize, fx, fy, cx, cy);
-
-        camera.setPipeline(aprilTagDetectionPipeline);
-        camera.openCameraDeviceAsync(new OpenCvCamera.AsyncCameraOpenListener() {
-            @Override
-            public void onOpened() {                               // RESOLUTION
-                camera.startStreaming(1280, 960, OpenCvCameraRotation.UPSIDE_DOWN);
-            }
+        init.stage("camera", () -> {
+            int cameraMonitorViewId = hardwareMap.appContext.getResources().getIdentifier("cameraMonitorViewId", "id", hardwareMap.appContext.getPackageName());
+            camera = OpenCvCameraFactory.getInstance().createWebcam(hardwareMap.get(WebcamName.class, "Webcam 1"), cameraMonitorViewId);
+
+            camera.openCameraDeviceAsync(new OpenCvCamera.AsyncCameraOpenListener() {
+                @Override
+                public void onOpened() {                               // RESOLUTION
+                    camera.startStreaming(1280, 960, OpenCvCameraRotation.UPSIDE_DOWN);
+                }
 
-            @Override
-            public void onError(int errorCode) {
-//                throw new RuntimeException("Error opening camera! Error code " + errorCode);
-            }
+                @Override
+                public void onError(int errorCode) {
+//                    throw new RuntimeException("Error opening camera! Error code " + errorCode);
+                }
+            });
+        });
+        init.stage("april tags", () -> aprilTagDetectionPipeline = new AprilTagDetectionPipeline(tagsize, fx, fy, cx, cy));
+        init.stage("pole detector", () -> poleDetector = new BasePoleDetector(telemetry));
+        init.stage("pipeline", () -> camera.setPipeline(aprilTagDetectionPipeline), "camera", "april tags");
+
+        init.stage("drive", () -> drive = new SampleMecanumDrive(hardwareMap));
+
+        init.stage("voltage scaler", () -> voltageScaler = new VoltageScaler(hardwareMap));
+        init.stage("lift", () -> lift = new Lift(hardwareMap, voltageScaler), "voltage scaler");
+        init.stage("arm", () -> arm = new Arm(hardwareMap));
+        init.stage("claw, intake, wrist", () -> {
+            claw = new Claw(hardwareMap);
+            intake = new Intake(hardwareMap);
+            wrist = new Wrist(hardwareMap);
         });
+        init.stage("front sensor", () -> frontSensor = new ShortRangeSensor(hardwareMap, "F_USDS", telemetry));
+
+        // Records every channel the other stages register, so it has to come last
+        init.stage("recorder", () -> {
+            if (RobotConstants.Recording.ENABLED) {
+                recorder = new InputRecorder(hardwareMap, gamepad1, gamepad2, InputRecorder.newFile(getClass().getSimpleName()));
+            }
+        }, "drive", "lift", "arm", "claw, intake, wrist", "front sensor");
 
-        poleDetector = new BasePoleDetector(telemetry);
+        init.run(telemetry);
+        telemetry.update();
     }
 
     public int waitForStartWithVision() {
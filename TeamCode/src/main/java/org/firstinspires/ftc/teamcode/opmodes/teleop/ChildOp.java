@@ -2,9 +2,9 @@ package org.firstinspires.ftc.teamcode.opmodes.teleop;
 
 import com.qualcomm.robotcore.eventloop.opmode.TeleOp;
 
-import org.firstinspires.ftc.teamcode.components.taskchains.BackwardsDepositChain;
-import org.firstinspires.ftc.teamcode.components.taskchains.ForwardsDepositChain;
-import org.firstinspires.ftc.teamcode.components.taskchains.IntakeChain;
+import org.firstinspires.ftc.teamcodekt.components.taskchains.BackwardsDepositChain;
+import org.firstinspires.ftc.teamcodekt.components.taskchains.ForwardsDepositChain;
+import org.firstinspires.ftc.teamcodekt.components.taskchains.IntakeChain;
 import org.firstinspires.ftc.teamcode.util.RobotConstants;
 import org.firstinspires.ftc.teamcodekt.components.scheduler.listeners.Listener;
 import org.firstinspires.ftc.teamcodekt.components.scheduler.taskchains.CancellableTaskChain;
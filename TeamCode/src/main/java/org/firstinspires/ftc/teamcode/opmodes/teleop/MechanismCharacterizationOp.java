@@ -0,0 +1,291 @@
+package org.firstinspires.ftc.teamcode.opmodes.teleop;
+
+import com.acmerobotics.dashboard.FtcDashboard;
+import com.acmerobotics.dashboard.config.Config;
+import com.acmerobotics.dashboard.telemetry.MultipleTelemetry;
+import com.acmerobotics.roadrunner.util.NanoClock;
+import com.qualcomm.hardware.lynx.LynxModule;
+import com.qualcomm.robotcore.eventloop.opmode.LinearOpMode;
+import com.qualcomm.robotcore.eventloop.opmode.TeleOp;
+import com.qualcomm.robotcore.hardware.DcMotor;
+import com.qualcomm.robotcore.hardware.DcMotorEx;
+import com.qualcomm.robotcore.hardware.DcMotorSimple;
+import com.qualcomm.robotcore.util.RobotLog;
+
+import org.apache.commons.math3.exception.MathIllegalArgumentException;
+import org.firstinspires.ftc.robotcore.internal.system.Misc;
+import org.firstinspires.ftc.teamcode.components.arm.Arm;
+import org.firstinspires.ftc.teamcode.roadrunner.util.LoggingUtil;
+import org.firstinspires.ftc.teamcode.util.MechanismRegression;
+import org.firstinspires.ftc.teamcode.util.RobotConstants;
+import org.firstinspires.ftc.teamcodekt.components.hardware.BatteryVoltage;
+
+/**
+ * OpMode for identifying the lift's and the arm's feedforward, and proposing PID gains from it.
+ *
+ * For each mechanism, a quasi-static ramp is run up, then down, followed by a voltage step each
+ * way, every run stopping at the mechanism's travel limits. Samples are taken at the full loop rate
+ * (with bulk reads), with the power normalized to 12V, then fit with a MechanismRegression. The
+ * samples are logged to a CSV in the RoadRunner folder. The arm is fit on its raw encoder ticks
+ * (the same units as its ENC gains), with its gravity load taken from the analog sensor alone.
+ *
+ * <strong>CONTROLS:</strong>
+ * All on gamepad 1
+ * button y: start the next test, or apply the lift's results to RobotConstants.Lift
+ * button b: skip the next test
+ */
+@Config
+@TeleOp(group = "tuning")
+public class MechanismCharacterizationOp extends LinearOpMode {
+    public static double RAMP_RATE = 0.1; // power per second
+    public static double MAX_RAMP_POWER = 0.8;
+    public static double STEP_POWER = 0.5;
+    public static double RUN_TIMEOUT = 10; // s
+    public static double SETTLE_TIME = 1; // s
+
+    public static double LIFT_MIN_HEIGHT = 50;
+    public static double LIFT_MAX_HEIGHT = 2400;
+    public static double LIFT_MIN_VELOCITY = 20; // ticks per second
+
+    // Arm limits, in encoder ticks from vertical
+    public static double ARM_MIN_POSITION = -400;
+    public static double ARM_MAX_POSITION = 400;
+    public static double ARM_MIN_VELOCITY = 12; // ticks per second
+
+    // The arm's gravity load is taken as the sine of the analog sensor's angle from vertical
+    public static double ARM_UNITS_PER_RADIAN = 764;
+
+    public static double DESIRED_BANDWIDTH = 10; // rad/s
+
+    private final NanoClock clock = NanoClock.system();
+
+    private DcMotorEx liftA, liftB, liftC;
+    private DcMotorEx armMotor;
+    private Arm arm;
+
+    private interface Mechanism {
+        double position();
+
+        void setPower(double power);
+
+        double gravity();
+    }
+
+    @Override
+    public void runOpMode() throws InterruptedException {
+        telemetry = new MultipleTelemetry(telemetry, FtcDashboard.getInstance().getTelemetry());
+
+        initHardware();
+
+        Mechanism lift = new Mechanism() {
+            @Override
+            public double position() {
+                return liftA.getCurrentPosition();
+            }
+
+            @Override
+            public void setPower(double power) {
+                liftA.setPower(power);
+                liftB.setPower(power);
+                liftC.setPower(power);
+            }
+
+            @Override
+            public double gravity() {
+                return 1;
+            }
+        };
+
+        Mechanism armMechanism = new Mechanism() {
+            @Override
+            public double position() {
+                return armMotor.getCurrentPosition();
+            }
+
+            @Override
+            public void setPower(double power) {
+                armMotor.setPower(power);
+            }
+
+            @Override
+            public double gravity() {
+                return Math.sin((arm.getArmPosition() - RobotConstants.Arm.VERTICAL) / ARM_UNITS_PER_RADIAN);
+            }
+        };
+
+        telemetry.addLine("Rest the arm vertically and the lift at the bottom, with room to move");
+        telemetry.addLine("Press play to begin");
+        telemetry.update();
+
+        waitForStart();
+
+        if (isStopRequested()) return;
+
+        MechanismRegression.Result liftResult = null;
+        if (confirm("Characterize the lift?")) {
+            liftResult = characterize("Lift", lift, LIFT_MIN_HEIGHT, LIFT_MAX_HEIGHT, LIFT_MIN_VELOCITY);
+        }
+
+        MechanismRegression.Result armResult = null;
+        if (confirm("Characterize the arm?")) {
+            armResult = characterize("Arm", armMechanism, ARM_MIN_POSITION, ARM_MAX_POSITION, ARM_MIN_VELOCITY);
+        }
+
+        if (liftResult != null && confirm("Apply the lift's results to RobotConstants.Lift?")) {
+            double[] pd = liftResult.proposePD(DESIRED_BANDWIDTH);
+
+            RobotConstants.Lift.kS = liftResult.kS;
+            RobotConstants.Lift.kG = liftResult.kG;
+            RobotConstants.Lift.kV = liftResult.kV;
+            RobotConstants.Lift.kA = liftResult.kA;
+            RobotConstants.Lift.PROFILE_P = pd[0];
+            RobotConstants.Lift.PROFILE_D = pd[1];
+        }
+
+        telemetry.clearAll();
+        report("Lift", liftResult);
+        report("Arm", armResult);
+        telemetry.update();
+
+        while (!isStopRequested()) {
+            idle();
+        }
+    }
+
+    /**
+     * Runs the ramps and steps on the given mechanism, then fits them.
+     * @return The fit, or null if it failed or the OpMode was stopped.
+     */
+    private MechanismRegression.Result characterize(String name, Mechanism mechanism,
+                                                    double min, double max, double minVelocity) {
+        MechanismRegression regression = new MechanismRegression();
+
+        runTest(name + " ramp up", regression, mechanism, 1, true, min, max);
+        runTest(name + " ramp down", regression, mechanism, -1, true, min, max);
+        runTest(name + " step up", regression, mechanism, 1, false, min, max);
+        runTest(name + " step down", regression, mechanism, -1, false, min, max);
+
+        if (isStopRequested()) return null;
+
+        try {
+            MechanismRegression.Result result = regression.fit(minVelocity,
+                LoggingUtil.getLogFile(Misc.formatInvariant(
+                    "%sCharacterization-%d.csv", name, System.currentTimeMillis())));
+
+            RobotLog.ii("MechanismCharacterization", Misc.formatInvariant(
+                "%s: kS = %.5f, kG = %.5f, kV = %.7f, kA = %.8f (R^2 = %.3f, %d samples)",
+                name, result.kS, result.kG, result.kV, result.kA, result.rSquare, result.samples));
+
+            return result;
+        } catch (IllegalStateException | MathIllegalArgumentException e) {
+            // Too few samples, or they didn't move both ways (e.g. the mechanism was stuck)
+            telemetry.addLine(name + " fit failed: " + e.getMessage());
+            telemetry.update();
+            return null;
+        }
+    }
+
+    /**
+     * Drives the mechanism with a ramp, or a step, in the given direction until it leaves its range
+     * (or times out), recording every loop, then lets it settle.
+     */
+    private void runTest(String name, MechanismRegression regression, Mechanism mechanism,
+                         double direction, boolean ramp, double min, double max) {
+        if (isStopRequested()) return;
+
+        telemetry.clearAll();
+        telemetry.addLine("Running " + name + "...");
+        telemetry.update();
+
+        regression.startRun();
+
+        double startTime = clock.seconds();
+        while (!isStopRequested()) {
+            double elapsedTime = clock.seconds() - startTime;
+            double position = mechanism.position();
+
+            boolean pastLimit = (direction > 0) ? position > max : position < min;
+            if (pastLimit || elapsedTime > RUN_TIMEOUT) {
+                break;
+            }
+
+            double power = direction * (ramp ? Math.min(RAMP_RATE * elapsedTime, MAX_RAMP_POWER) : STEP_POWER);
+            mechanism.setPower(power);
+
+            // Normalized to 12V, the same as the feedforward is applied
+            double normalizedPower = power * BatteryVoltage.getVolts() / BatteryVoltage.NOMINAL_VOLTS;
+            regression.add(elapsedTime, position, normalizedPower, mechanism.gravity());
+        }
+        mechanism.setPower(0);
+
+        double settleStart = clock.seconds();
+        while (!isStopRequested() && clock.seconds() - settleStart < SETTLE_TIME) {
+            mechanism.position();
+            idle();
+        }
+    }
+
+    private void report(String name, MechanismRegression.Result result) {
+        if (result == null) {
+            telemetry.addLine(name + ": not characterized");
+            return;
+        }
+        double[] pd = result.proposePD(DESIRED_BANDWIDTH);
+
+        telemetry.addLine(Misc.formatInvariant("%s: kS = %.5f, kG = %.5f, kV = %.7f, kA = %.8f (R^2 = %.3f)",
+            name, result.kS, result.kG, result.kV, result.kA, result.rSquare));
+        telemetry.addLine(Misc.formatInvariant("%s: proposed P = %.6f, D = %.7f (raw power, at %.1f rad/s)",
+            name, pd[0], pd[1], DESIRED_BANDWIDTH));
+    }
+
+    /**
+     * Asks a yes or no question on gamepad 1, and waits for the answer.
+     */
+    private boolean confirm(String question) {
+        telemetry.clearAll();
+        telemetry.addLine(question);
+        telemetry.addLine("Press (Y/Δ) for yes, (B/O) for no");
+        telemetry.update();
+
+        while (!isStopRequested()) {
+            if (gamepad1.y) {
+                while (!isStopRequested() && gamepad1.y) {
+                    idle();
+                }
+                return true;
+            } else if (gamepad1.b) {
+                while (!isStopRequested() && gamepad1.b) {
+                    idle();
+                }
+                return false;
+            }
+            idle();
+        }
+        return false;
+    }
+
+    private void initHardware() {
+        for (LynxModule module : hardwareMap.getAll(LynxModule.class)) {
+            module.setBulkCachingMode(LynxModule.BulkCachingMode.AUTO);
+        }
+
+        BatteryVoltage.start(hardwareMap);
+
+        liftA = initMotor("L1");
+        liftB = initMotor("L2");
+        liftC = initMotor("L3");
+        liftB.setDirection(DcMotorSimple.Direction.REVERSE);
+
+        // The Arm is only used for its analog sensor; its motor is driven directly
+        arm = new Arm(hardwareMap);
+        armMotor = initMotor("AR");
+    }
+
+    private DcMotorEx initMotor(String name) {
+        DcMotorEx motor = hardwareMap.get(DcMotorEx.class, name);
+        motor.setMode(DcMotor.RunMode.STOP_AND_RESET_ENCODER);
+        motor.setMode(DcMotor.RunMode.RUN_WITHOUT_ENCODER);
+        motor.setZeroPowerBehavior(DcMotor.ZeroPowerBehavior.BRAKE);
+        return motor;
+    }
+}
@@ -13,6 +13,10 @@ import org.firstinspires.ftc.teamcode.components.voltagescaler.VoltageScaler;
 import org.firstinspires.ftc.teamcode.components.wrist.Wrist;
 import org.firstinspires.ftc.teamcode.roadrunner.drive.StandardTrackingWheelLocalizer;
 import org.firstinspires.ftc.teamcode.util.RobotConstants;
+import org.firstinspires.ftc.teamcodekt.components.hardware.CurrentMonitor;
+import org.firstinspires.ftc.teamcodekt.components.hardware.HardwareSnapshot;
+import org.firstinspires.ftc.teamcodekt.components.hardware.InputRecorder;
+import org.firstinspires.ftc.teamcodekt.components.hardware.OutputStage;
 import org.firstinspires.ftc.teamcodekt.components.motors.DriveMotors;
 import org.firstinspires.ftc.teamcodekt.components.scheduler.Scheduler;
 import org.firstinspires.ftc.teamcodekt.components.scheduler.listeners.GamepadEx2;
@@ -29,6 +33,9 @@ public abstract class RogueBaseTeleOp extends LinearOpMode {
     protected Wrist wrist;
     protected Lift lift;
     protected VoltageScaler voltageScaler;
+    protected HardwareSnapshot hardwareSnapshot;
+    protected OutputStage outputStage;
+    protected InputRecorder recorder;
     protected Bot bot;
 
     protected GamepadEx2 driver;
@@ -58,6 +65,9 @@ public abstract class RogueBaseTeleOp extends LinearOpMode {
 
             doEveryLoop();
 
+            Scheduler.addScopeTelemetry(telemetry);
+            outputStage.addTo(telemetry);
+            CurrentMonitor.addTo(telemetry);
             telemetry.update();
         });
     }
@@ -67,6 +77,9 @@ public abstract class RogueBaseTeleOp extends LinearOpMode {
     protected void doEveryLoop() {}
 
     private void initHardware() {
+        hardwareSnapshot = new HardwareSnapshot(hardwareMap);
+        outputStage = new OutputStage();
+
         driver   = new GamepadEx2(gamepad1);
         codriver = new GamepadEx2(gamepad2);
 
@@ -80,9 +93,21 @@ public abstract class RogueBaseTeleOp extends LinearOpMode {
         wrist  = new Wrist(hardwareMap);
         lift   = new Lift(hardwareMap, voltageScaler);
 
+        arm.attachSnapshot(hardwareSnapshot);
+        lift.attachSnapshot(hardwareSnapshot);
+
+        driveMotors.attachOutput(outputStage);
+        wrist.attachOutput(outputStage);
+        arm.attachOutput(outputStage);
+        lift.attachOutput(outputStage);
+
         bot = new Bot(driveMotors, localizer, claw, intake, arm, wrist, lift);
 
         initAdditionalHardware();
+
+        if (RobotConstants.Recording.ENABLED) {
+            recorder = new InputRecorder(hardwareMap, gamepad1, gamepad2, InputRecorder.newFile(getClass().getSimpleName()));
+        }
     }
 
     protected void decreaseDriveSpeedABit() {
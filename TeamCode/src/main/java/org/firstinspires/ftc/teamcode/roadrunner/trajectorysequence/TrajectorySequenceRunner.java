@@ -21,6 +21,7 @@ import org.firstinspires.ftc.teamcode.roadrunner.trajectorysequence.sequencesegm
 import org.firstinspires.ftc.teamcode.roadrunner.trajectorysequence.sequencesegment.TurnSegment;
 import org.firstinspires.ftc.teamcode.roadrunner.trajectorysequence.sequencesegment.WaitSegment;
 import org.firstinspires.ftc.teamcode.roadrunner.util.DashboardUtil;
+import org.firstinspires.ftc.teamcodekt.components.scheduler.SchedulerClock;
 
 import java.util.ArrayList;
 import java.util.Collections;
@@ -63,7 +64,14 @@ public class TrajectorySequenceRunner {
         turnController = new PIDFController(headingPIDCoefficients);
         turnController.setInputBounds(0, 2 * Math.PI);
 
-        clock = NanoClock.system();
+        // Keep time by the Scheduler's clock, so that recordings replay (and simulations run) on
+        // virtual time
+        clock = new NanoClock() {
+            @Override
+            public double seconds() {
+                return SchedulerClock.nanoTime() / 1e9;
+            }
+        };
 
         dashboard = FtcDashboard.getInstance();
         dashboard.setTelemetryTransmissionInterval(25);
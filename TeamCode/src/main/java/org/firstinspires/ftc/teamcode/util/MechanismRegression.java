@@ -0,0 +1,164 @@
+package org.firstinspires.ftc.teamcode.util;
+
+import androidx.annotation.Nullable;
+
+import org.apache.commons.math3.stat.regression.OLSMultipleLinearRegression;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Fits a gravity loaded mechanism's (the lift's, or the arm's) feedforward from test runs, like
+ * RegressionUtil does for the drive.
+ *
+ * Each run (e.g. a quasi-static ramp or a voltage step) is recorded as time, position, power, and
+ * gravity factor samples: 1 for the lift, since gravity pulls on it the same at every height, or
+ * the sine of the angle from vertical for the arm. Velocity and acceleration are differentiated
+ * numerically within each run, then one least squares fit over every run finds
+ * {@code power = kS * sign(v) + kG * gravity + kV * v + kA * a}. Samples slower than the minimum
+ * velocity are dropped, since static friction doesn't follow the model.
+ *
+ * @author KG
+ */
+public class MechanismRegression {
+    /**
+     * Feedforward estimates, and how well they fit.
+     */
+    public static class Result {
+        public final double kS, kG, kV, kA, rSquare;
+        public final int samples;
+
+        public Result(double kS, double kG, double kV, double kA, double rSquare, int samples) {
+            this.kS = kS;
+            this.kG = kG;
+            this.kV = kV;
+            this.kA = kA;
+            this.rSquare = rSquare;
+            this.samples = samples;
+        }
+
+        /**
+         * Proposes PD gains on position for the identified model, placing the closed loop poles
+         * at the given bandwidth, critically damped. The gains are in power per position unit, so
+         * they apply to a controller adding them to this feedforward on raw motor power.
+         * @param bandwidth The closed loop's natural frequency, in rad/s.
+         * @return The proposed {P, D}.
+         */
+        public double[] proposePD(double bandwidth) {
+            double kP = kA * bandwidth * bandwidth;
+            double kD = Math.max(0, 2 * bandwidth * kA - kV);
+            return new double[]{kP, kD};
+        }
+    }
+
+    private final List<List<double[]>> runs = new ArrayList<>();
+
+    /**
+     * Starts a new run; derivatives are never taken across runs.
+     */
+    public void startRun() {
+        runs.add(new ArrayList<>());
+    }
+
+    /**
+     * Adds a sample to the current run.
+     */
+    public void add(double time, double position, double power, double gravity) {
+        if (runs.isEmpty()) {
+            startRun();
+        }
+        runs.get(runs.size() - 1).add(new double[]{time, position, power, gravity});
+    }
+
+    /**
+     * Fits the feedforward over every run.
+     * @param minVelocity The slowest a sample may be moving to be used.
+     * @param file The log file to write every sample to, if any.
+     * @throws IllegalStateException If there aren't enough moving samples to fit.
+     */
+    public Result fit(double minVelocity, @Nullable File file) {
+        List<double[]> x = new ArrayList<>();
+        List<Double> y = new ArrayList<>();
+
+        PrintWriter pw = null;
+        if (file != null) {
+            try {
+                pw = new PrintWriter(file);
+                pw.println("run,time,position,velocity,acceleration,power,gravity");
+            } catch (FileNotFoundException e) {
+                // ignore
+            }
+        }
+
+        for (int r = 0; r < runs.size(); r++) {
+            List<double[]> run = runs.get(r);
+            if (run.size() < 3) {
+                continue;
+            }
+
+            double[] time = column(run, 0);
+            double[] vel = numericalDerivative(time, column(run, 1));
+            double[] accel = numericalDerivative(time, vel);
+
+            for (int i = 0; i < run.size(); i++) {
+                double[] sample = run.get(i);
+
+                if (pw != null) {
+                    pw.println(r + "," + sample[0] + "," + sample[1] + "," + vel[i] + "," + accel[i]
+                        + "," + sample[2] + "," + sample[3]);
+                }
+
+                if (Math.abs(vel[i]) < minVelocity) {
+                    continue;
+                }
+                x.add(new double[]{Math.signum(vel[i]), sample[3], vel[i], accel[i]});
+                y.add(sample[2]);
+            }
+        }
+
+        if (pw != null) {
+            pw.close();
+        }
+
+        if (x.size() <= 4) {
+            throw new IllegalStateException("Not enough moving samples to fit (" + x.size() + ")");
+        }
+
+        double[] ys = new double[y.size()];
+        for (int i = 0; i < ys.length; i++) {
+            ys[i] = y.get(i);
+        }
+
+        OLSMultipleLinearRegression regression = new OLSMultipleLinearRegression();
+        regression.setNoIntercept(true);
+        regression.newSampleData(ys, x.toArray(new double[0][]));
+
+        double[] beta = regression.estimateRegressionParameters();
+        return new Result(beta[0], beta[1], beta[2], beta[3], regression.calculateRSquared(), ys.length);
+    }
+
+    private static double[] column(List<double[]> run, int index) {
+        double[] values = new double[run.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = run.get(i)[index];
+        }
+        return values;
+    }
+
+    /**
+     * Numerically compute dy/dx with central differences, copying the endpoints to pad the output.
+     */
+    private static double[] numericalDerivative(double[] x, double[] y) {
+        double[] deriv = new double[x.length];
+        for (int i = 1; i < x.length - 1; i++) {
+            double dx = x[i + 1] - x[i - 1];
+            deriv[i] = (dx > 0) ? (y[i + 1] - y[i - 1]) / dx : 0;
+        }
+        deriv[0] = deriv[1];
+        deriv[x.length - 1] = deriv[x.length - 2];
+        return deriv;
+    }
+}
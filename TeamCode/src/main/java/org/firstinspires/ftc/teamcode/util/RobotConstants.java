@@ -1,8 +1,27 @@
 package org.firstinspires.ftc.teamcode.util;
 
 import com.acmerobotics.dashboard.config.Config;
+import com.qualcomm.robotcore.hardware.PIDFCoefficients;
 
 public class RobotConstants {
+	@Config
+	public static class Battery {
+		public static int SAMPLE_PERIOD_MS = 100;
+
+		public static double PROCESS_NOISE = 0.001;
+		public static double MEASUREMENT_NOISE = 0.05;
+	}
+
+	@Config
+	public static class AnalogPolling {
+		// Only for inputs on hubs that aren't bulk cached
+		public static boolean BACKGROUND = false;
+		public static int PERIOD_MS = 20;
+
+		public static double PROCESS_NOISE = 0.01;
+		public static double MEASUREMENT_NOISE = 0.05;
+	}
+
 	@Config
 	public static class VoltagePID {
 		public static double TARGET_VOLTAGE = 14;
@@ -45,6 +64,21 @@ public class RobotConstants {
 		public static double ENC_BACKWARDS = 480;
 		public static double ENC_VERTICAL = 0;
 		public static double ENC_FORWARDS = -480;
+
+		// Fused analog sensor and encoder estimate; uses the FUSED PIDF and the analog setpoints
+		public static boolean USE_FUSED_ESTIMATE = false;
+
+		public static double ENC_TO_SENSOR = 2.5;
+
+		public static double FUSION_PROCESS_NOISE = 0.05;
+		public static double FUSION_MEASUREMENT_NOISE = 25;
+		public static double FUSION_MAX_CORRECTION_VELOCITY = 2000;
+		public static double VELOCITY_SMOOTHING = 0.7;
+
+		public static double FUSED_P = 0.00085;
+		public static double FUSED_I = 0.0;
+		public static double FUSED_D = 0.00002;
+		public static double FUSED_F = 0;
     }
 
     @Config
@@ -80,5 +114,107 @@ public class RobotConstants {
 		public static double INCREASING_I = 0;
 		public static double INCREASING_D = 0;
 		public static double INCREASING_F = 0;
+
+		// Gain schedule, replacing the PIDF above (and its DEBUG hot reload), aggressive ascendance,
+		// and the voltage scaler's setpoint offset when enabled; off until the table below is tuned.
+		// It's seeded with the INCREASING gains ascending, and the default ones descending
+		public static boolean USE_GAIN_SCHEDULE = false;
+
+		public static int SCHEDULE_LOW_HEIGHT = 0;
+		public static int SCHEDULE_MID_HEIGHT = 1300;
+		public static int SCHEDULE_HIGH_HEIGHT = 2500;
+
+		public static PIDFCoefficients ASCENDING_LOW = new PIDFCoefficients(.01, 0, 0, 0);
+		public static PIDFCoefficients ASCENDING_MID = new PIDFCoefficients(.01, 0, 0, 0);
+		public static PIDFCoefficients ASCENDING_HIGH = new PIDFCoefficients(.01, 0, 0, 0);
+
+		public static PIDFCoefficients DESCENDING_LOW = new PIDFCoefficients(0.0011, 0.2, 0.0001, 0.00001);
+		public static PIDFCoefficients DESCENDING_MID = new PIDFCoefficients(0.0011, 0.2, 0.0001, 0.00001);
+		public static PIDFCoefficients DESCENDING_HIGH = new PIDFCoefficients(0.0011, 0.2, 0.0001, 0.00001);
+
+		public static double DIRECTION_BLEND_TICKS = 50;
+
+		public static double SCHEDULE_REFERENCE_VOLTS = 12.5;
+		public static double VOLTAGE_GAIN_SCALING = 1;
+
+		// Motion profiled control; the PIDF above is used when this is off
+		public static boolean USE_MOTION_PROFILE = false;
+
+		public static double MAX_VEL = 2000;
+		public static double MAX_ACCEL = 6000;
+		public static double MAX_JERK = 0; // 0 for a trapezoidal profile
+
+		public static double kS = 0.04;
+		public static double kG = 0.1;
+		public static double kV = 0.00035;
+		public static double kA = 0.00004;
+
+		public static double PROFILE_P = 0.004;
+		public static double PROFILE_I = 0;
+		public static double PROFILE_D = 0.0001;
+
+		public static int AT_TARGET_TOLERANCE = 15;
+    }
+
+    @Config
+    public static class Output {
+		public static double MOTOR_EPSILON = 0.005;
+		public static double SERVO_EPSILON = 0.001;
+
+		// Off until a measured flush shows a speedup; the workers only run while it's on
+		public static boolean PARALLEL_DISPATCH = false;
+    }
+
+    @Config
+    public static class HardwareProfiling {
+		// Devices are only wrapped when fetched, so this must be on before the OpMode inits
+		public static boolean ENABLED = false;
+
+		public static int PUBLISH_EVERY_TICKS = 50;
+		public static int SHOWN = 10;
+    }
+
+    @Config
+    public static class Recording {
+		public static boolean ENABLED = false;
+
+		public static int RING_TICKS = 4096;
+		public static int FLUSH_PERIOD_MS = 50;
+    }
+
+    @Config
+    public static class Power {
+		// Off until its cost on the loop time has been measured
+		public static boolean ENABLED = false;
+
+		// The lift's currents are read every sample, the rest one per sample, in turn
+		public static int SAMPLE_PERIOD_MS = 50;
+		public static int WINDOW_SAMPLES = 40;
+
+		public static double DEFAULT_RESISTANCE = 0.08;
+		public static double MIN_CURRENT_VARIANCE = 1.0;
+
+		public static int PREDICTION_HORIZON_MS = 150;
+		public static double BROWNOUT_VOLTS = 8.0;
+
+		public static double MIN_POWER_LIMIT = 0.4;
+		public static double RECOVERY_PER_SAMPLE = 0.05;
+    }
+
+    @Config
+    public static class Mechanism {
+		// The lowest the lift may be while the arm swings past vertical
+		public static int SWING_MIN_LIFT_HEIGHT = 500;
+
+		// How close to VERTICAL the arm counts as on neither side, to ride out the sensor's noise
+		public static double VERTICAL_DEADBAND = 40;
+
+		public static double ARM_MAX_VEL = 4000;
+		public static double ARM_MAX_ACCEL = 12000;
+
+		public static double WRIST_TRAVEL_SECONDS = 0.25;
+
+		// How long past its planned duration a move may run before anything waiting on it gives up
+		public static double MOVE_TIMEOUT_SECONDS = 1;
     }
 }
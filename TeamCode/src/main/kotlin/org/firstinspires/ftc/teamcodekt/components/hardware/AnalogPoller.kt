@@ -0,0 +1,347 @@
+package org.firstinspires.ftc.teamcodekt.components.hardware
+
+import com.qualcomm.robotcore.hardware.AnalogInput
+import org.firstinspires.ftc.teamcode.util.KalmanFilter
+import org.firstinspires.ftc.teamcode.util.RobotConstants
+import org.firstinspires.ftc.teamcodekt.components.scheduler.Scheduler
+import org.firstinspires.ftc.teamcodekt.components.scheduler.SchedulerClock
+import org.firstinspires.ftc.teamcodekt.util.OpModeTeardown
+import java.util.concurrent.locks.StampedLock
+
+/**
+ * Samples every registered [AnalogInput] at most once per [Scheduler] tick (or per
+ * [PERIOD_MS][RobotConstants.AnalogPolling.PERIOD_MS] outside of its loop), and keeps a filtered
+ * copy of each.
+ *
+ * By default, inputs are read lazily on the main thread, by the first read of a channel in each
+ * tick. On a bulk-cached hub (every hub, once a drive or a [HardwareSnapshot] is created) that read
+ * is served from the tick's bulk read, so it costs nothing. With
+ * [BACKGROUND][RobotConstants.AnalogPolling.BACKGROUND] on, inputs are instead sampled on a
+ * background thread every [PERIOD_MS][RobotConstants.AnalogPolling.PERIOD_MS], so the main loop
+ * never blocks on an analog read; only worth it for hubs that aren't bulk cached, since on one in
+ * [AUTO][com.qualcomm.hardware.lynx.LynxModule.BulkCachingMode.AUTO] mode every background read
+ * triggers a bulk read of its own, contending with the loop for the hub.
+ *
+ * Each sample records the raw voltage, a [KalmanFilter]ed voltage, when it was taken, and how long
+ * the read took. Lazily read channels are read and written on the main thread only, with no locking.
+ * In the background, the samples are double buffered: the sampler fills the back buffer without
+ * holding any lock, then swaps it to the front under a brief write lock. Readers then use a
+ * seqlock-style [optimistic read][StampedLock.tryOptimisticRead] of the front buffer, retrying only
+ * if a swap happened mid-read, so they never block or allocate.
+ *
+ * The background sampler starts with the first [register] call, and is stopped (and every channel
+ * dropped) whenever an OpMode stops.
+ *
+ * Java usage example:
+ * ```java
+ * int armEnc = AnalogPoller.register(hardwareMap.analogInput.get("ARM_ENC"));
+ *
+ * Scheduler.start(this, () -> {
+ *     telemetry.addData("Arm voltage", AnalogPoller.voltage(armEnc));
+ *     telemetry.addData("Arm voltage (filtered)", AnalogPoller.filtered(armEnc));
+ *     telemetry.addData("Arm sample age (ns)", AnalogPoller.ageNanos(armEnc));
+ * });
+ * ```
+ *
+ * @author KG
+ *
+ * @see BatteryVoltage
+ */
+object AnalogPoller {
+    private val lock = StampedLock()
+
+    private var inputs = arrayOf<AnalogInput>()
+    private var filters = arrayOf<KalmanFilter>()
+
+    /**
+     * Each array holds both buffers, indexed by `[buffer][channel]`; [front] is the one readers see.
+     */
+    private var voltages = Array(2) { DoubleArray(0) }
+    private var filteredVoltages = Array(2) { DoubleArray(0) }
+    private var timestamps = Array(2) { LongArray(0) }
+    private var latencies = Array(2) { LongArray(0) }
+
+    private var front = 0
+
+    /**
+     * The tick each lazily read channel was last read in.
+     */
+    private var sampledTicks = LongArray(0)
+
+    /**
+     * Whether or not readings are being [injected][inject] in place of the inputs'.
+     */
+    private var isInjected = false
+
+    private var sampler: Thread? = null
+
+    /**
+     * Stops sampling after every OpMode stops.
+     */
+    private val teardown = OpModeTeardown(::reset)
+
+    /**
+     * Adds an analog input to be sampled. The first sample is taken immediately, so its values are
+     * valid as soon as this returns.
+     * @param input The input to sample.
+     * @return The channel to read the input's values with.
+     */
+    @JvmStatic
+    @Synchronized
+    fun register(input: AnalogInput): Int {
+        val channel = inputs.size
+        val filter = KalmanFilter(RobotConstants.AnalogPolling.PROCESS_NOISE, RobotConstants.AnalogPolling.MEASUREMENT_NOISE)
+
+        val startTime = System.nanoTime()
+        val voltage = input.voltage
+        val endTime = System.nanoTime()
+        val filtered = filter.filter(voltage)
+        val timestamp = SchedulerClock.nanoTime()
+
+        val stamp = lock.writeLock()
+        try {
+            inputs += input
+            filters += filter
+            sampledTicks = sampledTicks.copyOf(channel + 1).also { it[channel] = Scheduler.activeTickStartNanos }
+
+            for (b in 0..1) {
+                voltages[b] = voltages[b].copyOf(channel + 1).also { it[channel] = voltage }
+                filteredVoltages[b] = filteredVoltages[b].copyOf(channel + 1).also { it[channel] = filtered }
+                timestamps[b] = timestamps[b].copyOf(channel + 1).also { it[channel] = timestamp }
+                latencies[b] = latencies[b].copyOf(channel + 1).also { it[channel] = endTime - startTime }
+            }
+        } finally {
+            lock.unlockWrite(stamp)
+        }
+
+        // A background thread would sample in real time, while a simulation runs on a virtual clock
+        val isBackground = RobotConstants.AnalogPolling.BACKGROUND && !SchedulerClock.isVirtual
+
+        if (isBackground && sampler?.isAlive != true) {
+            sampler = Thread({ sampleLoop() }, "AnalogPoller").apply {
+                isDaemon = true
+                start()
+            }
+        }
+
+        teardown.register()
+        return channel
+    }
+
+    /**
+     * The number of registered channels.
+     */
+    @JvmStatic
+    val channelCount get() = inputs.size
+
+    /**
+     * Gets the input behind the given channel.
+     */
+    internal fun input(channel: Int) = inputs[channel]
+
+    /**
+     * Gets the input's latest raw voltage.
+     */
+    @JvmStatic
+    fun voltage(channel: Int): Double {
+        if (refreshIfLazy(channel)) {
+            return voltages[front][channel]
+        }
+
+        while (true) {
+            val stamp = lock.tryOptimisticRead()
+            val value = voltages[front][channel]
+
+            if (lock.validate(stamp)) {
+                return value
+            }
+        }
+    }
+
+    /**
+     * Gets the input's latest filtered voltage.
+     */
+    @JvmStatic
+    fun filtered(channel: Int): Double {
+        if (refreshIfLazy(channel)) {
+            return filteredVoltages[front][channel]
+        }
+
+        while (true) {
+            val stamp = lock.tryOptimisticRead()
+            val value = filteredVoltages[front][channel]
+
+            if (lock.validate(stamp)) {
+                return value
+            }
+        }
+    }
+
+    /**
+     * Gets the [SchedulerClock.nanoTime] at which the input's latest sample was taken.
+     */
+    @JvmStatic
+    fun timestampNanos(channel: Int): Long {
+        if (refreshIfLazy(channel)) {
+            return timestamps[front][channel]
+        }
+
+        while (true) {
+            val stamp = lock.tryOptimisticRead()
+            val value = timestamps[front][channel]
+
+            if (lock.validate(stamp)) {
+                return value
+            }
+        }
+    }
+
+    /**
+     * Gets how long ago the input's latest sample was taken, in nanoseconds.
+     */
+    @JvmStatic
+    fun ageNanos(channel: Int) = SchedulerClock.nanoTime() - timestampNanos(channel)
+
+    /**
+     * Gets how long the input's latest read took, in nanoseconds.
+     */
+    @JvmStatic
+    fun readLatencyNanos(channel: Int): Long {
+        if (refreshIfLazy(channel)) {
+            return latencies[front][channel]
+        }
+
+        while (true) {
+            val stamp = lock.tryOptimisticRead()
+            val value = latencies[front][channel]
+
+            if (lock.validate(stamp)) {
+                return value
+            }
+        }
+    }
+
+    /**
+     * Stops sampling and drops every channel.
+     */
+    @JvmStatic
+    @Synchronized
+    fun reset() {
+        sampler?.interrupt()
+        sampler = null
+
+        val stamp = lock.writeLock()
+        try {
+            inputs = arrayOf()
+            filters = arrayOf()
+            voltages = Array(2) { DoubleArray(0) }
+            filteredVoltages = Array(2) { DoubleArray(0) }
+            timestamps = Array(2) { LongArray(0) }
+            latencies = Array(2) { LongArray(0) }
+            sampledTicks = LongArray(0)
+            front = 0
+            isInjected = false
+        } finally {
+            lock.unlockWrite(stamp)
+        }
+    }
+
+    /**
+     * Stops sampling, and publishes the given values in place of the inputs' readings instead, e.g.
+     * to replay a recording.
+     * @param voltages The raw voltage of each channel.
+     * @param filtered The filtered voltage of each channel.
+     * @param timestamp The time the values were read at.
+     */
+    @Synchronized
+    internal fun inject(voltages: DoubleArray, filtered: DoubleArray, timestamp: Long) {
+        sampler?.interrupt()
+        sampler = null
+        isInjected = true
+
+        val stamp = lock.writeLock()
+        try {
+            for (b in 0..1) {
+                for (i in inputs.indices) {
+                    this.voltages[b][i] = voltages[i]
+                    filteredVoltages[b][i] = filtered[i]
+                    timestamps[b][i] = timestamp
+                    latencies[b][i] = 0
+                }
+            }
+        } finally {
+            lock.unlockWrite(stamp)
+        }
+    }
+
+    /**
+     * Reads the channel on the calling thread if it's read lazily and hasn't been read yet this
+     * tick (or, outside of the [Scheduler]'s loop, in the last [PERIOD_MS][RobotConstants.AnalogPolling.PERIOD_MS]).
+     * @return Whether the channel is read lazily, so its front buffer may be read directly; `false`
+     * if the background sampler owns the buffers.
+     */
+    private fun refreshIfLazy(channel: Int): Boolean {
+        if (sampler != null) {
+            return false
+        }
+        if (isInjected) {
+            return true
+        }
+
+        val tick = Scheduler.activeTickStartNanos
+        val periodNanos = RobotConstants.AnalogPolling.PERIOD_MS * 1_000_000L
+        if (tick == sampledTicks[channel] && SchedulerClock.nanoTime() - timestamps[front][channel] < periodNanos) {
+            return true
+        }
+        sampledTicks[channel] = tick
+
+        val startTime = System.nanoTime()
+        val voltage = inputs[channel].voltage
+        val endTime = System.nanoTime()
+
+        voltages[front][channel] = voltage
+        filteredVoltages[front][channel] = filters[channel].filter(voltage)
+        timestamps[front][channel] = SchedulerClock.nanoTime()
+        latencies[front][channel] = endTime - startTime
+        return true
+    }
+
+    private fun sampleLoop() {
+        try {
+            while (!Thread.currentThread().isInterrupted) {
+                Thread.sleep(RobotConstants.AnalogPolling.PERIOD_MS.toLong())
+                sampleAll()
+            }
+        } catch (e: InterruptedException) {
+            // Stopped
+        }
+    }
+
+    /**
+     * Fills the back buffer, then swaps it to the front. Holds the monitor so that [register] and
+     * [reset] can't resize the buffers mid-sample; readers never touch the monitor.
+     */
+    @Synchronized
+    private fun sampleAll() {
+        if (Thread.currentThread() !== sampler) {
+            return
+        }
+
+        val back = 1 - front
+
+        for (i in inputs.indices) {
+            val startTime = System.nanoTime()
+            val voltage = inputs[i].voltage
+            val endTime = System.nanoTime()
+
+            voltages[back][i] = voltage
+            filteredVoltages[back][i] = filters[i].filter(voltage)
+            timestamps[back][i] = endTime
+            latencies[back][i] = endTime - startTime
+        }
+
+        val stamp = lock.writeLock()
+        front = back
+        lock.unlockWrite(stamp)
+    }
+}
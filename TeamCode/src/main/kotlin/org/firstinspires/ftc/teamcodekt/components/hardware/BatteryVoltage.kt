@@ -0,0 +1,160 @@
+package org.firstinspires.ftc.teamcodekt.components.hardware
+
+import com.qualcomm.robotcore.hardware.HardwareMap
+import com.qualcomm.robotcore.hardware.VoltageSensor
+import org.firstinspires.ftc.teamcode.util.KalmanFilter
+import org.firstinspires.ftc.teamcode.util.RobotConstants
+import org.firstinspires.ftc.teamcodekt.components.scheduler.SchedulerClock
+import org.firstinspires.ftc.teamcodekt.util.OpModeTeardown
+
+/**
+ * A shared battery voltage reading, sampled at a low rate on a background thread and smoothed
+ * through a [KalmanFilter].
+ *
+ * Reading the voltage straight from a [VoltageSensor] is a blocking hub transaction; this service
+ * does one every [SAMPLE_PERIOD_MS][RobotConstants.Battery.SAMPLE_PERIOD_MS] instead, off of the
+ * main loop, and publishes the filtered value through a volatile field. Every consumer reads that
+ * same value, lock-free, without any bus traffic of its own.
+ *
+ * The sampler is started by the first call to [start] in an OpMode (later calls do nothing), and
+ * is stopped automatically whenever an OpMode stops. While the [SchedulerClock] is virtual (i.e. in
+ * a simulation), no thread is started; the simulation calls [sampleIfDue] every step instead, so
+ * the period is kept in simulated time.
+ *
+ * Java usage example:
+ * ```java
+ * BatteryVoltage.start(hardwareMap);
+ *
+ * Scheduler.start(this, () -> {
+ *     double kF = RobotConstants.Lift.F * 12 / BatteryVoltage.getVolts();
+ * });
+ * ```
+ *
+ * @author KG
+ */
+object BatteryVoltage {
+    /**
+     * The latest filtered battery voltage, or [NOMINAL_VOLTS] if it was never sampled.
+     */
+    @JvmStatic
+    @Volatile
+    var volts = NOMINAL_VOLTS
+        private set
+
+    /**
+     * The number of samples taken since the sampler was last started.
+     */
+    @JvmStatic
+    @Volatile
+    var sampleCount = 0L
+        private set
+
+    private var sampler: Thread? = null
+
+    /**
+     * The sensor and filter sampled by [sampleIfDue], while sampling synchronously.
+     */
+    private var synchronousSensor: VoltageSensor? = null
+    private var synchronousFilter: KalmanFilter? = null
+    private var lastSampleNanos = 0L
+
+    /**
+     * Stops sampling after every OpMode stops.
+     */
+    private val teardown = OpModeTeardown(::stop)
+
+    /**
+     * Starts sampling the battery voltage, if not already started. The first sample is taken
+     * immediately, so [volts] is valid as soon as this returns.
+     * @param hwMap The [HardwareMap] to find the voltage sensor in.
+     */
+    @JvmStatic
+    @Synchronized
+    fun start(hwMap: HardwareMap) {
+        if (sampler?.isAlive == true || synchronousSensor != null) {
+            return
+        }
+
+        val sensor = HardwareProfiler.wrap(hwMap.voltageSensor.iterator().next(), "voltageSensor")
+        val filter = KalmanFilter(RobotConstants.Battery.PROCESS_NOISE, RobotConstants.Battery.MEASUREMENT_NOISE)
+
+        sampleCount = 0
+        sample(sensor, filter)
+
+        if (SchedulerClock.isVirtual) {
+            synchronousSensor = sensor
+            synchronousFilter = filter
+            lastSampleNanos = SchedulerClock.nanoTime()
+        } else {
+            sampler = Thread({ sampleLoop(sensor, filter) }, "BatteryVoltage").apply {
+                isDaemon = true
+                start()
+            }
+        }
+
+        teardown.register()
+    }
+
+    /**
+     * Stops sampling the battery voltage. [volts] keeps its last value.
+     */
+    @JvmStatic
+    @Synchronized
+    fun stop() {
+        sampler?.interrupt()
+        sampler = null
+        synchronousSensor = null
+        synchronousFilter = null
+    }
+
+    /**
+     * Takes a sample on the calling thread if sampling synchronously, and at least
+     * [SAMPLE_PERIOD_MS][RobotConstants.Battery.SAMPLE_PERIOD_MS] have passed since the last.
+     * @param nowNanos The current time, by the [SchedulerClock].
+     */
+    @Synchronized
+    internal fun sampleIfDue(nowNanos: Long) {
+        val sensor = synchronousSensor ?: return
+        val filter = synchronousFilter ?: return
+
+        if (nowNanos - lastSampleNanos < RobotConstants.Battery.SAMPLE_PERIOD_MS * 1_000_000L) {
+            return
+        }
+        lastSampleNanos = nowNanos
+        sample(sensor, filter)
+    }
+
+    /**
+     * Stops sampling, and reports the given voltage instead, e.g. to replay a recording.
+     */
+    @Synchronized
+    internal fun inject(volts: Double) {
+        stop()
+        this.volts = volts
+    }
+
+    private fun sampleLoop(sensor: VoltageSensor, filter: KalmanFilter) {
+        try {
+            while (!Thread.currentThread().isInterrupted) {
+                Thread.sleep(RobotConstants.Battery.SAMPLE_PERIOD_MS.toLong())
+                sample(sensor, filter)
+            }
+        } catch (e: InterruptedException) {
+            // Stopped
+        }
+    }
+
+    private fun sample(sensor: VoltageSensor, filter: KalmanFilter) {
+        val measured = sensor.voltage
+
+        if (measured > 0) {
+            volts = filter.filter(measured)
+            sampleCount++
+        }
+    }
+
+    /**
+     * The voltage reported before the first sample is taken.
+     */
+    const val NOMINAL_VOLTS = 12.0
+}
@@ -0,0 +1,385 @@
+package org.firstinspires.ftc.teamcodekt.components.hardware
+
+import com.qualcomm.robotcore.hardware.DcMotorEx
+import com.qualcomm.robotcore.hardware.HardwareMap
+import com.qualcomm.robotcore.hardware.VoltageSensor
+import org.firstinspires.ftc.robotcore.external.Telemetry
+import org.firstinspires.ftc.robotcore.external.navigation.CurrentUnit
+import org.firstinspires.ftc.teamcode.util.RobotConstants
+import org.firstinspires.ftc.teamcodekt.components.scheduler.SchedulerClock
+import org.firstinspires.ftc.teamcodekt.util.OpModeTeardown
+import kotlin.math.max
+
+/**
+ * Samples the current drawn by the registered motors, plus the battery voltage, on a background
+ * thread every [SAMPLE_PERIOD_MS][RobotConstants.Power.SAMPLE_PERIOD_MS], and predicts brownouts
+ * before they happen.
+ *
+ * Each [DcMotorEx.getCurrent] is a separate hub transaction, too slow to make from the main loop;
+ * here they're made off of it, and the main loop only ever reads the published results. They still
+ * contend with the main loop for the hub, so only the motors registered as `everySample` (the
+ * lift's, which draw the sudden surges a brownout comes from) are read on every sample; the rest
+ * are read one per sample, in turn. The total is the sum of each motor's latest reading, so a surge
+ * on the lift shows up on the very next sample, while the drive's and arm's steadier draw may be a
+ * few samples old.
+ *
+ * Monitoring is off unless [ENABLED][RobotConstants.Power.ENABLED]; measure the loop time with and
+ * without it before turning it on for a match.
+ *
+ * The total current and battery voltage of the last
+ * [WINDOW_SAMPLES][RobotConstants.Power.WINDOW_SAMPLES] samples are kept in a rolling window. A
+ * least squares fit of voltage against current over the window estimates the battery's open
+ * circuit voltage and its internal (plus wiring) resistance, i.e. how much the voltage sags per amp.
+ * The current's recent trend is extrapolated [PREDICTION_HORIZON_MS][RobotConstants.Power.PREDICTION_HORIZON_MS]
+ * ahead, and, if the voltage at that current would fall below
+ * [BROWNOUT_VOLTS][RobotConstants.Power.BROWNOUT_VOLTS], the [powerLimit] is cut to the fraction of
+ * that current the battery can supply without doing so. The limit drops at once, but recovers only
+ * gradually, by [RECOVERY_PER_SAMPLE][RobotConstants.Power.RECOVERY_PER_SAMPLE] per sample.
+ *
+ * The [OutputStage] and the lift scale their powers by the [powerLimit].
+ *
+ * The sampler starts with the first [register] call, and is stopped (and every channel dropped)
+ * whenever an OpMode stops. While the [SchedulerClock] is virtual (i.e. in a simulation), no thread
+ * is started; the simulation calls [sampleIfDue] every step instead, so the window and the trend
+ * are measured in simulated time.
+ *
+ * Java usage example:
+ * ```java
+ * int liftCurrent = CurrentMonitor.register(hardwareMap, "L1");
+ *
+ * Scheduler.start(this, () -> {
+ *     liftMotor.setPower(power * CurrentMonitor.getPowerLimit());
+ *     telemetry.addData("Lift current", CurrentMonitor.amps(liftCurrent));
+ *     CurrentMonitor.addTo(telemetry);
+ * });
+ * ```
+ *
+ * @author KG
+ *
+ * @see BatteryVoltage
+ */
+object CurrentMonitor {
+    private var motors = arrayOf<DcMotorEx>()
+    private var names = arrayOf<String>()
+    private var isEverySample = BooleanArray(0)
+    private var voltageSensor: VoltageSensor? = null
+
+    /**
+     * The channel to try first when picking the next round-robin motor to read.
+     */
+    private var nextMotor = 0
+
+    /**
+     * The latest current of each motor, in amps; replaced when a motor is registered, otherwise
+     * updated in place.
+     */
+    @Volatile
+    private var latestAmps = DoubleArray(0)
+
+    private var windowAmps = DoubleArray(0)
+    private var windowVolts = DoubleArray(0)
+    private var windowTimes = LongArray(0)
+    private var windowSize = 0
+    private var windowNext = 0
+
+    /**
+     * The total current drawn by every registered motor, as of the latest sample, in amps.
+     */
+    @JvmStatic
+    @Volatile
+    var totalAmps = 0.0
+        private set
+
+    /**
+     * The estimated resistance between the battery and the hubs, in ohms.
+     */
+    @JvmStatic
+    @Volatile
+    var resistanceOhms = RobotConstants.Power.DEFAULT_RESISTANCE
+        private set
+
+    /**
+     * The estimated open circuit (no load) battery voltage.
+     */
+    @JvmStatic
+    @Volatile
+    var openCircuitVolts = BatteryVoltage.NOMINAL_VOLTS
+        private set
+
+    /**
+     * The voltage predicted [PREDICTION_HORIZON_MS][RobotConstants.Power.PREDICTION_HORIZON_MS] from
+     * now, if the current keeps its recent trend.
+     */
+    @JvmStatic
+    @Volatile
+    var predictedVolts = BatteryVoltage.NOMINAL_VOLTS
+        private set
+
+    /**
+     * The fraction of their requested power the motors should be run at, in
+     * `[MIN_POWER_LIMIT, 1]`; below `1` only while a brownout is predicted, or shortly after.
+     */
+    @JvmStatic
+    @Volatile
+    var powerLimit = 1.0
+        private set
+
+    /**
+     * The number of samples in which a brownout was predicted.
+     */
+    @JvmStatic
+    @Volatile
+    var limitedSamples = 0L
+        private set
+
+    private var sampler: Thread? = null
+
+    /**
+     * Whether samples are taken by [sampleIfDue] rather than the sampler thread.
+     */
+    private var isSynchronous = false
+    private var lastSampleNanos = 0L
+
+    /**
+     * Stops sampling after every OpMode stops.
+     */
+    private val teardown = OpModeTeardown(::reset)
+
+    /**
+     * Adds a motor to be sampled in the background, if [ENABLED][RobotConstants.Power.ENABLED].
+     * @param hwMap The [HardwareMap] to find the motor (and, the first time, the battery) in.
+     * @param name The motor's name in the config.
+     * @param everySample Whether to read the motor on every sample, rather than in turn with the
+     * others; for the motors whose draw can surge fastest.
+     * @return The channel to read the motor's current with, or `-1` if monitoring is disabled.
+     */
+    @JvmStatic
+    @JvmOverloads
+    @Synchronized
+    fun register(hwMap: HardwareMap, name: String, everySample: Boolean = false): Int {
+        if (!RobotConstants.Power.ENABLED) {
+            return -1
+        }
+
+        val existing = names.indexOf(name)
+        if (existing >= 0) {
+            isEverySample[existing] = isEverySample[existing] || everySample
+            return existing
+        }
+
+        motors += hwMap.get(DcMotorEx::class.java, name)
+        names += name
+        isEverySample = isEverySample.copyOf(motors.size).also { it[motors.size - 1] = everySample }
+        latestAmps = latestAmps.copyOf(motors.size)
+
+        if (voltageSensor == null) {
+            voltageSensor = hwMap.voltageSensor.iterator().next()
+        }
+
+        if (sampler?.isAlive != true && !isSynchronous) {
+            val window = RobotConstants.Power.WINDOW_SAMPLES
+            windowAmps = DoubleArray(window)
+            windowVolts = DoubleArray(window)
+            windowTimes = LongArray(window)
+            windowSize = 0
+            windowNext = 0
+
+            if (SchedulerClock.isVirtual) {
+                isSynchronous = true
+                lastSampleNanos = SchedulerClock.nanoTime()
+            } else {
+                sampler = Thread({ sampleLoop() }, "CurrentMonitor").apply {
+                    isDaemon = true
+                    start()
+                }
+            }
+        }
+
+        teardown.register()
+        return motors.size - 1
+    }
+
+    /**
+     * Gets the motor's latest current, in amps, or `0` if it isn't monitored.
+     */
+    @JvmStatic
+    fun amps(channel: Int): Double {
+        val amps = latestAmps
+        return if (channel in amps.indices) amps[channel] else 0.0
+    }
+
+    /**
+     * Adds the current, sag, and power limit estimates to the given telemetry.
+     */
+    @JvmStatic
+    fun addTo(telemetry: Telemetry) {
+        telemetry.addData("Total current (A)", totalAmps)
+        telemetry.addData("Battery resistance (ohm)", resistanceOhms)
+        telemetry.addData("Predicted voltage", predictedVolts)
+        telemetry.addData("Power limit", powerLimit)
+    }
+
+    /**
+     * Stops sampling and drops every channel. The power limit is lifted.
+     */
+    @JvmStatic
+    @Synchronized
+    fun reset() {
+        sampler?.interrupt()
+        sampler = null
+        isSynchronous = false
+
+        motors = arrayOf()
+        names = arrayOf()
+        isEverySample = BooleanArray(0)
+        voltageSensor = null
+        nextMotor = 0
+        latestAmps = DoubleArray(0)
+
+        totalAmps = 0.0
+        predictedVolts = openCircuitVolts
+        powerLimit = 1.0
+    }
+
+    private fun sampleLoop() {
+        try {
+            while (!Thread.currentThread().isInterrupted) {
+                Thread.sleep(RobotConstants.Power.SAMPLE_PERIOD_MS.toLong())
+                sampleNext(System.nanoTime())
+            }
+        } catch (e: InterruptedException) {
+            // Stopped
+        }
+    }
+
+    /**
+     * Takes a sample on the calling thread if sampling synchronously, and at least
+     * [SAMPLE_PERIOD_MS][RobotConstants.Power.SAMPLE_PERIOD_MS] have passed since the last.
+     * @param nowNanos The current time, by the [SchedulerClock].
+     */
+    @Synchronized
+    internal fun sampleIfDue(nowNanos: Long) {
+        if (!isSynchronous || nowNanos - lastSampleNanos < RobotConstants.Power.SAMPLE_PERIOD_MS * 1_000_000L) {
+            return
+        }
+        lastSampleNanos = nowNanos
+        sampleNext(nowNanos)
+    }
+
+    /**
+     * Reads the every-sample motors' currents, the next round-robin motor's, and the battery
+     * voltage, then updates the estimates. Holds the monitor so that [register] and [reset] can't
+     * change the channels mid-sample; readers never touch the monitor.
+     * @param nowNanos The time of the sample.
+     */
+    @Synchronized
+    private fun sampleNext(nowNanos: Long) {
+        val isSampler = isSynchronous || Thread.currentThread() === sampler
+        if (!isSampler || motors.isEmpty()) {
+            return
+        }
+
+        val amps = latestAmps
+
+        for (i in motors.indices) {
+            if (isEverySample[i]) {
+                amps[i] = motors[i].getCurrent(CurrentUnit.AMPS)
+            }
+        }
+
+        // The next of the rest, if there are any
+        var remaining = motors.size
+        while (remaining-- > 0) {
+            val i = nextMotor % motors.size
+            nextMotor = i + 1
+
+            if (!isEverySample[i]) {
+                amps[i] = motors[i].getCurrent(CurrentUnit.AMPS)
+                break
+            }
+        }
+
+        val volts = voltageSensor?.voltage ?: return
+        totalAmps = amps.sum()
+
+        windowAmps[windowNext] = totalAmps
+        windowVolts[windowNext] = volts
+        windowTimes[windowNext] = nowNanos
+        windowNext = (windowNext + 1) % windowAmps.size
+        windowSize = minOf(windowSize + 1, windowAmps.size)
+
+        fitSag()
+        predict()
+    }
+
+    /**
+     * Fits `volts = openCircuitVolts - resistanceOhms * amps` over the window. If the current
+     * hasn't varied enough to tell the slope apart from noise, the last resistance is kept.
+     */
+    private fun fitSag() {
+        val n = windowSize
+        if (n < 2) {
+            openCircuitVolts = windowVolts[0] + resistanceOhms * windowAmps[0]
+            return
+        }
+
+        var meanAmps = 0.0
+        var meanVolts = 0.0
+        for (i in 0 until n) {
+            meanAmps += windowAmps[i]
+            meanVolts += windowVolts[i]
+        }
+        meanAmps /= n
+        meanVolts /= n
+
+        var covariance = 0.0
+        var variance = 0.0
+        for (i in 0 until n) {
+            val da = windowAmps[i] - meanAmps
+            covariance += da * (windowVolts[i] - meanVolts)
+            variance += da * da
+        }
+
+        if (variance / n >= RobotConstants.Power.MIN_CURRENT_VARIANCE) {
+            resistanceOhms = (-covariance / variance).coerceIn(MIN_RESISTANCE, MAX_RESISTANCE)
+        }
+        openCircuitVolts = meanVolts + resistanceOhms * meanAmps
+    }
+
+    /**
+     * Extrapolates the current's rise over the last few samples, then predicts the voltage and sets
+     * the power limit from it.
+     */
+    private fun predict() {
+        val size = windowAmps.size
+        val latest = (windowNext - 1 + size) % size
+        val lookback = minOf(TREND_SAMPLES, windowSize - 1)
+        val earlier = (latest - lookback + size) % size
+
+        val elapsed = (windowTimes[latest] - windowTimes[earlier]) / 1e9
+        val trend = if (lookback > 0 && elapsed > 0) (windowAmps[latest] - windowAmps[earlier]) / elapsed else 0.0
+
+        val horizon = RobotConstants.Power.PREDICTION_HORIZON_MS / 1e3
+        val predictedAmps = totalAmps + max(0.0, trend) * horizon
+        predictedVolts = openCircuitVolts - resistanceOhms * predictedAmps
+
+        val minLimit = RobotConstants.Power.MIN_POWER_LIMIT
+        val recovered = minOf(1.0, powerLimit + RobotConstants.Power.RECOVERY_PER_SAMPLE)
+
+        powerLimit = if (predictedVolts < RobotConstants.Power.BROWNOUT_VOLTS && predictedAmps > 0) {
+            limitedSamples++
+            val allowedAmps = (openCircuitVolts - RobotConstants.Power.BROWNOUT_VOLTS) / resistanceOhms
+            minOf(recovered, (allowedAmps / predictedAmps).coerceIn(minLimit, 1.0))
+        } else {
+            recovered
+        }
+    }
+
+    /**
+     * The number of samples the current's trend is measured over.
+     */
+    private const val TREND_SAMPLES = 3
+
+    private const val MIN_RESISTANCE = 0.01
+    private const val MAX_RESISTANCE = 0.5
+}
@@ -0,0 +1,151 @@
+package org.firstinspires.ftc.teamcodekt.components.hardware
+
+import com.acmerobotics.dashboard.FtcDashboard
+import com.acmerobotics.dashboard.telemetry.TelemetryPacket
+import com.qualcomm.robotcore.hardware.AnalogInput
+import com.qualcomm.robotcore.hardware.DcMotorEx
+import com.qualcomm.robotcore.hardware.Servo
+import com.qualcomm.robotcore.hardware.VoltageSensor
+import com.qualcomm.robotcore.util.RobotLog
+import org.firstinspires.ftc.teamcode.util.RobotConstants
+import org.firstinspires.ftc.teamcodekt.components.scheduler.LatencyHistogram
+import org.firstinspires.ftc.teamcodekt.components.scheduler.Scheduler
+
+/**
+ * Measures how long each hardware call takes, per device and per call, so it's easy to see which
+ * device eats the loop budget (e.g. `ARM_ENC.getVoltage` or `voltageSensor.getVoltage`).
+ *
+ * [wrap] decorates a [DcMotorEx], [Servo], [AnalogInput], or [VoltageSensor] so that each of its
+ * reads and writes is counted and timed into a [LatencyHistogram]; anything else is returned as is.
+ * `HardwareMap._get` wraps the devices of those types it returns, and devices fetched from the
+ * [HardwareMap] directly can be wrapped by hand. Only wrapped devices are profiled, so the lift's
+ * and arm's motors (L1, L2, L3 and AR), fetched by FTCLib's `Motor`, are wrapped by swapping the
+ * wrapper into its `motor` field; their encoder positions are still read through the raw device,
+ * which FTCLib's `Encoder` holds on to. Wrapping is skipped entirely if
+ * [ENABLED][RobotConstants.HardwareProfiling.ENABLED] is off, which it is by default, since every
+ * wrapped call pays for its own timing.
+ *
+ * While the [Scheduler] runs, the [SHOWN][RobotConstants.HardwareProfiling.SHOWN] calls taking the
+ * most total time are sent to FTC Dashboard every
+ * [PUBLISH_EVERY_TICKS][RobotConstants.HardwareProfiling.PUBLISH_EVERY_TICKS] ticks. When the
+ * OpMode stops, every call is dumped to the robot log, then the histograms are dropped.
+ *
+ * Java usage example:
+ * ```java
+ * AnalogInput sensor = HardwareProfiler.wrap(hardwareMap.analogInput.get("ARM_ENC"), "ARM_ENC");
+ * liftA.motor = HardwareProfiler.wrap((DcMotorEx) liftA.motor, "L1");
+ * ```
+ *
+ * @author KG
+ *
+ * @see LatencyHistogram
+ */
+object HardwareProfiler {
+    private val histograms = LinkedHashMap<String, LatencyHistogram>()
+
+    /**
+     * Decorates the given device so that its hardware calls are timed, if it's of a supported type
+     * and profiling is enabled; otherwise, returns it as is.
+     * @param device The device to wrap.
+     * @param name The name to report the device's calls under, e.g. its name in the config.
+     * @return The wrapped device.
+     */
+    @JvmStatic
+    @Suppress("UNCHECKED_CAST")
+    fun <T> wrap(device: T, name: String): T {
+        if (!RobotConstants.HardwareProfiling.ENABLED) {
+            return device
+        }
+
+        val wrapped = when (device) {
+            is ProfiledDevice -> return device
+            is DcMotorEx -> ProfiledMotor(device, name)
+            is Servo -> ProfiledServo(device, name)
+            is AnalogInput -> ProfiledAnalogInput(device, name)
+            is VoltageSensor -> ProfiledVoltageSensor(device, name)
+            else -> return device
+        }
+
+        Scheduler.hookFlush(Reporter)
+        return wrapped as T
+    }
+
+    /**
+     * Gets the histogram of the given device's call, creating it if it doesn't exist.
+     */
+    @Synchronized
+    internal fun histogramFor(device: String, call: String): LatencyHistogram {
+        val name = "$device.$call"
+        return histograms.getOrPut(name) { LatencyHistogram(name) }
+    }
+
+    /**
+     * Sends the calls taking the most total time to FTC Dashboard, in microseconds.
+     */
+    @JvmStatic
+    @Synchronized
+    fun publish() {
+        val packet = TelemetryPacket()
+
+        histograms.values
+            .filter { it.count > 0 }
+            .sortedByDescending { it.totalNanos }
+            .take(RobotConstants.HardwareProfiling.SHOWN)
+            .forEach {
+                val name = it.name
+                packet.put("$name calls", it.count)
+                packet.put("$name total (ms)", it.totalNanos / 1e6)
+                packet.put("$name p50 (us)", it.valueAtPercentile(50.0) / 1e3)
+                packet.put("$name p99 (us)", it.valueAtPercentile(99.0) / 1e3)
+                packet.put("$name max (us)", it.maxNanos / 1e3)
+            }
+
+        FtcDashboard.getInstance()?.sendTelemetryPacket(packet)
+    }
+
+    /**
+     * Writes every call's count and latencies to the robot log, most total time first.
+     */
+    @JvmStatic
+    @Synchronized
+    fun dump() {
+        histograms.values
+            .filter { it.count > 0 }
+            .sortedByDescending { it.totalNanos }
+            .forEach {
+                RobotLog.ii(
+                    "HardwareProfiler", "%-40s calls=%-7d total=%9.1fms p50=%8.1fus p99=%8.1fus max=%8.1fus",
+                    it.name, it.count, it.totalNanos / 1e6,
+                    it.valueAtPercentile(50.0) / 1e3, it.valueAtPercentile(99.0) / 1e3, it.maxNanos / 1e3,
+                )
+            }
+    }
+
+    /**
+     * Drops every histogram.
+     */
+    @JvmStatic
+    @Synchronized
+    fun reset() {
+        histograms.clear()
+    }
+
+    /**
+     * Publishes at the end of every few ticks, then dumps and resets when the OpMode stops.
+     */
+    private object Reporter : Runnable, AutoCloseable {
+        private var ticks = 0L
+
+        override fun run() {
+            if (++ticks % RobotConstants.HardwareProfiling.PUBLISH_EVERY_TICKS == 0L) {
+                publish()
+            }
+        }
+
+        override fun close() {
+            dump()
+            reset()
+            ticks = 0
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package org.firstinspires.ftc.teamcodekt.components.hardware
+
+import com.qualcomm.hardware.lynx.LynxModule
+import com.qualcomm.robotcore.hardware.HardwareMap
+import org.firstinspires.ftc.teamcodekt.components.scheduler.Scheduler
+import java.util.function.DoubleSupplier
+import java.util.function.IntSupplier
+
+/**
+ * A per-tick snapshot of the robot's sensor readings, taken once at the very start of every
+ * [Scheduler] tick.
+ *
+ * On creation, every Lynx hub is switched to [MANUAL][LynxModule.BulkCachingMode.MANUAL] bulk
+ * caching. At the start of each tick the snapshot clears each hub's cache, then reads every tracked
+ * channel; the first of those reads performs the hub's one bulk read for the tick, and every other
+ * read in the tick (tracked or not) is served from that cache. The values read are then held fixed
+ * for the rest of the tick, so every consumer sees the same encoder positions, velocities, and
+ * analog voltages.
+ *
+ * _Since the cache is only cleared by the [Scheduler], readings taken outside of its loop (e.g.
+ * during init) may be stale._
+ *
+ * Java usage example:
+ * ```java
+ * HardwareSnapshot snapshot = new HardwareSnapshot(hardwareMap);
+ *
+ * int liftPos = snapshot.trackPosition(liftMotor::getCurrentPosition);
+ * int armVolts = snapshot.trackAnalog(armSensor::getVoltage);
+ *
+ * Scheduler.start(this, () -> {
+ *     telemetry.addData("Lift", snapshot.position(liftPos));
+ *     telemetry.addData("Arm", snapshot.analog(armVolts));
+ * });
+ * ```
+ *
+ * @param hwMap The [HardwareMap] to find the hubs in.
+ *
+ * @author KG
+ *
+ * @see Scheduler.hookSnapshot
+ */
+class HardwareSnapshot(hwMap: HardwareMap) : Runnable {
+    private val hubs = hwMap.getAll(LynxModule::class.java).toTypedArray()
+
+    private var positionSources = arrayOf<IntSupplier>()
+    private var positions = IntArray(0)
+
+    private var velocitySources = arrayOf<DoubleSupplier>()
+    private var velocities = DoubleArray(0)
+
+    private var analogSources = arrayOf<DoubleSupplier>()
+    private var analogs = DoubleArray(0)
+
+    init {
+        for (hub in hubs) {
+            hub.bulkCachingMode = LynxModule.BulkCachingMode.MANUAL
+        }
+        Scheduler.hookSnapshot(this)
+    }
+
+    /**
+     * Adds an encoder position to be read every tick.
+     * @param source Reads the position, e.g. `motor::getCurrentPosition`.
+     * @return The channel to pass to [position].
+     */
+    fun trackPosition(source: IntSupplier): Int {
+        positionSources += source
+        positions = positions.copyOf(positionSources.size)
+        return positionSources.size - 1
+    }
+
+    /**
+     * Adds an encoder velocity to be read every tick.
+     * @param source Reads the velocity, e.g. `motor::getVelocity`.
+     * @return The channel to pass to [velocity].
+     */
+    fun trackVelocity(source: DoubleSupplier): Int {
+        velocitySources += source
+        velocities = velocities.copyOf(velocitySources.size)
+        return velocitySources.size - 1
+    }
+
+    /**
+     * Adds an analog reading to be read every tick.
+     * @param source Reads the value, e.g. `analogInput::getVoltage`.
+     * @return The channel to pass to [analog].
+     */
+    fun trackAnalog(source: DoubleSupplier): Int {
+        analogSources += source
+        analogs = analogs.copyOf(analogSources.size)
+        return analogSources.size - 1
+    }
+
+    /**
+     * Gets the encoder position read at the start of this tick.
+     */
+    fun position(channel: Int) = positions[channel]
+
+    /**
+     * Gets the encoder velocity read at the start of this tick.
+     */
+    fun velocity(channel: Int) = velocities[channel]
+
+    /**
+     * Gets the analog reading read at the start of this tick.
+     */
+    fun analog(channel: Int) = analogs[channel]
+
+    /**
+     * Clears each hub's bulk cache, then reads every tracked channel. Called by the [Scheduler].
+     */
+    override fun run() {
+        for (i in hubs.indices) {
+            hubs[i].clearBulkCache()
+        }
+
+        for (i in positionSources.indices) {
+            positions[i] = positionSources[i].asInt
+        }
+
+        for (i in velocitySources.indices) {
+            velocities[i] = velocitySources[i].asDouble
+        }
+
+        for (i in analogSources.indices) {
+            analogs[i] = analogSources[i].asDouble
+        }
+    }
+}
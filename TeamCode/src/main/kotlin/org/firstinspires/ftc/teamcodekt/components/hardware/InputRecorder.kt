@@ -0,0 +1,242 @@
+package org.firstinspires.ftc.teamcodekt.components.hardware
+
+import com.qualcomm.robotcore.hardware.DcMotorEx
+import com.qualcomm.robotcore.hardware.Gamepad
+import com.qualcomm.robotcore.hardware.HardwareMap
+import com.qualcomm.robotcore.util.RobotLog
+import org.firstinspires.ftc.robotcore.internal.system.AppUtil
+import org.firstinspires.ftc.teamcode.util.RobotConstants
+import org.firstinspires.ftc.teamcodekt.components.scheduler.Scheduler
+import java.io.DataOutputStream
+import java.io.File
+import java.io.IOException
+import java.io.OutputStream
+import java.nio.ByteBuffer
+import java.util.function.IntSupplier
+
+/**
+ * Records every input the robot's code reads, once per [Scheduler] tick, so that a match can be
+ * replayed off the robot exactly as it ran (see `InputReplay` in the sim package).
+ *
+ * Each tick, the tick's start time, both gamepads, every motor's encoder position and velocity (served
+ * from the bulk read the [HardwareSnapshot] just did), every [AnalogPoller] channel, the
+ * [BatteryVoltage], and any extra [int channels][trackInt] are packed into a fixed-size record in a
+ * preallocated ring buffer of [RING_TICKS][RobotConstants.Recording.RING_TICKS] records. A writer
+ * thread drains the ring to the file every [FLUSH_PERIOD_MS][RobotConstants.Recording.FLUSH_PERIOD_MS],
+ * so the loop itself never allocates or touches storage. If the writer falls a full ring behind, new
+ * ticks are [dropped][droppedTicks] rather than blocking the loop.
+ *
+ * The recorder is hooked as a snapshot stage, so it must be created _after_ the [HardwareSnapshot]
+ * and every component that registers with the [AnalogPoller]. The channel layout is fixed on the
+ * first tick. Whatever is left in the ring is written out when the OpMode stops.
+ *
+ * Java usage example:
+ * ```java
+ * HardwareSnapshot snapshot = new HardwareSnapshot(hardwareMap);
+ * Arm arm = new Arm(hardwareMap);
+ *
+ * InputRecorder recorder = new InputRecorder(hardwareMap, gamepad1, gamepad2, InputRecorder.newFile("RogueCompOp"));
+ * recorder.trackInt(() -> signalZone);
+ *
+ * Scheduler.start(this);
+ * ```
+ *
+ * @param hwMap The [HardwareMap] to find the motors in.
+ * @param file The file to write the recording to.
+ *
+ * @author KG
+ *
+ * @see InputRecording
+ */
+class InputRecorder(
+    hwMap: HardwareMap,
+    private val gamepad1: Gamepad,
+    private val gamepad2: Gamepad,
+    private val file: File,
+) : Runnable, AutoCloseable {
+    private val motors = hwMap.getAll(DcMotorEx::class.java).toTypedArray()
+    private val motorNames = motors.map { hwMap.getNamesOf(it).firstOrNull() ?: it.deviceName }
+
+    private var intSources = arrayOf<IntSupplier>()
+
+    private var layout: RecordLayout? = null
+    private var ring = ByteBuffer.allocate(0)
+    private var capacity = 0
+
+    /**
+     * The number of records written into the ring, and drained from it, respectively.
+     */
+    @Volatile
+    private var written = 0L
+
+    @Volatile
+    private var drained = 0L
+
+    private var output: OutputStream? = null
+    private var writer: Thread? = null
+    private var isClosed = false
+
+    /**
+     * The number of ticks not recorded because the writer had fallen a full ring behind.
+     */
+    var droppedTicks = 0L
+        private set
+
+    init {
+        Scheduler.hookSnapshot(this)
+    }
+
+    /**
+     * Adds an extra value to record every tick, e.g. a vision result.
+     * @param source Reads the value.
+     * @return The channel to read the value back from in an [InputRecording].
+     */
+    fun trackInt(source: IntSupplier): Int {
+        check(layout == null) { "Channels must be added before the first tick is recorded" }
+        intSources += source
+        return intSources.size - 1
+    }
+
+    /**
+     * Packs this tick's inputs into the ring. Called by the [Scheduler].
+     */
+    override fun run() {
+        if (isClosed) {
+            return
+        }
+        val layout = layout ?: begin() ?: return
+
+        if (written - drained >= capacity) {
+            droppedTicks++
+            return
+        }
+
+        val base = (written % capacity).toInt() * layout.size
+
+        ring.putLong(base, Scheduler.tickStartNanos)
+        layout.writeGamepad(ring, base + layout.gamepadOffset(1), gamepad1)
+        layout.writeGamepad(ring, base + layout.gamepadOffset(2), gamepad2)
+
+        for (i in motors.indices) {
+            val offset = base + layout.motorOffset(i)
+            ring.putInt(offset, motors[i].currentPosition)
+            ring.putDouble(offset + 4, motors[i].velocity)
+        }
+
+        for (i in 0 until layout.analogCount) {
+            val offset = base + layout.analogOffset(i)
+            ring.putDouble(offset, AnalogPoller.voltage(i))
+            ring.putDouble(offset + 8, AnalogPoller.filtered(i))
+        }
+
+        ring.putDouble(base + layout.batteryOffset, BatteryVoltage.volts)
+
+        for (i in intSources.indices) {
+            ring.putInt(base + layout.intOffset(i), intSources[i].asInt)
+        }
+
+        written++
+    }
+
+    /**
+     * Stops the writer, writes out whatever is left in the ring, and closes the file.
+     */
+    override fun close() {
+        if (isClosed) {
+            return
+        }
+        isClosed = true
+
+        writer?.let {
+            it.interrupt()
+            it.join()
+        }
+        writer = null
+
+        try {
+            output?.let {
+                drain(it)
+                it.close()
+            }
+        } catch (e: IOException) {
+            RobotLog.ee("InputRecorder", e, "Failed to finish writing %s", file)
+        }
+        output = null
+
+        RobotLog.ii("InputRecorder", "Recorded %d ticks to %s (%d dropped)", drained, file, droppedTicks)
+    }
+
+    /**
+     * Fixes the channel layout, allocates the ring, writes the header, and starts the writer.
+     * @return The layout, or `null` if the file couldn't be opened.
+     */
+    private fun begin(): RecordLayout? {
+        val layout = RecordLayout(motors.size, AnalogPoller.channelCount, intSources.size)
+
+        try {
+            file.parentFile?.mkdirs()
+            val stream = file.outputStream().buffered()
+            DataOutputStream(stream).let {
+                layout.writeHeader(it, motorNames)
+                it.flush()
+            }
+            output = stream
+        } catch (e: IOException) {
+            RobotLog.ee("InputRecorder", e, "Failed to open %s; not recording", file)
+            isClosed = true
+            return null
+        }
+
+        capacity = RobotConstants.Recording.RING_TICKS
+        ring = ByteBuffer.allocate(capacity * layout.size)
+
+        writer = Thread({ writeLoop() }, "InputRecorder").apply {
+            isDaemon = true
+            start()
+        }
+
+        this.layout = layout
+        return layout
+    }
+
+    private fun writeLoop() {
+        val output = output ?: return
+        try {
+            while (!Thread.currentThread().isInterrupted) {
+                Thread.sleep(RobotConstants.Recording.FLUSH_PERIOD_MS.toLong())
+                drain(output)
+            }
+        } catch (e: InterruptedException) {
+            // Stopped
+        } catch (e: IOException) {
+            RobotLog.ee("InputRecorder", e, "Failed to write %s", file)
+        }
+    }
+
+    /**
+     * Writes every record not yet drained, at most two contiguous runs of the ring at a time.
+     */
+    private fun drain(output: OutputStream) {
+        val size = layout?.size ?: return
+        val end = written
+
+        while (drained < end) {
+            val first = (drained % capacity).toInt()
+            val count = minOf(end - drained, (capacity - first).toLong()).toInt()
+
+            output.write(ring.array(), first * size, count * size)
+            drained += count
+        }
+        output.flush()
+    }
+
+    companion object {
+        /**
+         * Creates a new, uniquely named recording file in the robot's data folder.
+         * @param name The name to start the file's name with, e.g. the OpMode's.
+         */
+        @JvmStatic
+        fun newFile(name: String) =
+            File(AppUtil.ROBOT_DATA_DIR, "recordings/$name-${System.currentTimeMillis()}.rrec")
+    }
+}
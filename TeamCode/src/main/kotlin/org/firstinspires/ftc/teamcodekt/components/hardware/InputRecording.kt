@@ -0,0 +1,214 @@
+package org.firstinspires.ftc.teamcodekt.components.hardware
+
+import com.qualcomm.robotcore.hardware.Gamepad
+import java.io.DataInputStream
+import java.io.DataOutputStream
+import java.io.File
+import java.io.IOException
+import java.nio.ByteBuffer
+
+/**
+ * A recording made by an [InputRecorder], loaded into memory to be read back tick by tick.
+ *
+ * A recording is a short header (the channel counts and the motors' names), followed by one
+ * fixed-size record per tick holding, in order:
+ * - The tick's start time, as given by the `Scheduler`
+ * - Both gamepads' sticks, triggers, and buttons
+ * - Each motor's encoder position and velocity
+ * - Each [AnalogPoller] channel's raw and filtered voltage
+ * - The [BatteryVoltage]
+ * - Each extra int channel added through [InputRecorder.trackInt] (e.g. the vision result)
+ *
+ * Java usage example:
+ * ```java
+ * InputRecording recording = new InputRecording(new File("match.rrec"));
+ *
+ * for (int tick = 0; tick < recording.getTickCount(); tick++) {
+ *     System.out.println(recording.motorPosition(tick, 0));
+ * }
+ * ```
+ *
+ * @param file The file to load.
+ *
+ * @author KG
+ *
+ * @see InputRecorder
+ */
+class InputRecording(file: File) {
+    private val layout: RecordLayout
+    private val records: ByteBuffer
+
+    /**
+     * The names of the recorded motors, in channel order.
+     */
+    val motorNames: List<String>
+
+    /**
+     * The number of ticks recorded.
+     */
+    val tickCount: Int
+
+    init {
+        DataInputStream(file.inputStream().buffered()).use { input ->
+            if (input.readInt() != MAGIC) {
+                throw IOException("${file.name} is not an input recording")
+            }
+            if (input.readInt() != VERSION) {
+                throw IOException("${file.name} was recorded by a different version of the InputRecorder")
+            }
+
+            val motorCount = input.readInt()
+            val analogCount = input.readInt()
+            val intCount = input.readInt()
+
+            layout = RecordLayout(motorCount, analogCount, intCount)
+            motorNames = List(motorCount) { input.readUTF() }
+
+            val bytes = input.readBytes()
+            tickCount = bytes.size / layout.size
+            records = ByteBuffer.wrap(bytes)
+        }
+    }
+
+    /**
+     * The number of [AnalogPoller] channels recorded.
+     */
+    val analogCount get() = layout.analogCount
+
+    /**
+     * The number of extra int channels recorded.
+     */
+    val intCount get() = layout.intCount
+
+    /**
+     * Gets the start time of the tick, in nanoseconds.
+     */
+    fun timestampNanos(tick: Int) = records.getLong(tick * layout.size)
+
+    /**
+     * Writes the state of the given recorded gamepad (`1` or `2`) into the given [Gamepad].
+     */
+    fun readGamepad(tick: Int, which: Int, gamepad: Gamepad) =
+        layout.readGamepad(records, tick * layout.size + layout.gamepadOffset(which), gamepad)
+
+    /**
+     * Gets the motor's encoder position, with the motor's direction applied.
+     */
+    fun motorPosition(tick: Int, channel: Int) =
+        records.getInt(tick * layout.size + layout.motorOffset(channel))
+
+    /**
+     * Gets the motor's encoder velocity, with the motor's direction applied.
+     */
+    fun motorVelocity(tick: Int, channel: Int) =
+        records.getDouble(tick * layout.size + layout.motorOffset(channel) + 4)
+
+    /**
+     * Gets the [AnalogPoller] channel's raw voltage.
+     */
+    fun analogVoltage(tick: Int, channel: Int) =
+        records.getDouble(tick * layout.size + layout.analogOffset(channel))
+
+    /**
+     * Gets the [AnalogPoller] channel's filtered voltage.
+     */
+    fun analogFiltered(tick: Int, channel: Int) =
+        records.getDouble(tick * layout.size + layout.analogOffset(channel) + 8)
+
+    /**
+     * Gets the filtered battery voltage.
+     */
+    fun batteryVolts(tick: Int) = records.getDouble(tick * layout.size + layout.batteryOffset)
+
+    /**
+     * Gets the value of an extra int channel.
+     */
+    fun intValue(tick: Int, channel: Int) =
+        records.getInt(tick * layout.size + layout.intOffset(channel))
+
+    internal companion object {
+        const val MAGIC = 0x52524543 // "RREC"
+        const val VERSION = 1
+    }
+}
+
+/**
+ * Where each value sits within a single tick's record; shared by the [InputRecorder] and the
+ * [InputRecording] so the two can never disagree.
+ */
+internal class RecordLayout(val motorCount: Int, val analogCount: Int, val intCount: Int) {
+    private val motorsOffset = TIMESTAMP_SIZE + 2 * GAMEPAD_SIZE
+    private val analogsOffset = motorsOffset + motorCount * MOTOR_SIZE
+
+    val batteryOffset = analogsOffset + analogCount * ANALOG_SIZE
+    private val intsOffset = batteryOffset + 8
+
+    /**
+     * The size of a record, in bytes.
+     */
+    val size = intsOffset + intCount * 4
+
+    fun gamepadOffset(which: Int) = TIMESTAMP_SIZE + (which - 1) * GAMEPAD_SIZE
+    fun motorOffset(channel: Int) = motorsOffset + channel * MOTOR_SIZE
+    fun analogOffset(channel: Int) = analogsOffset + channel * ANALOG_SIZE
+    fun intOffset(channel: Int) = intsOffset + channel * 4
+
+    /**
+     * Writes the header describing this layout, followed by the motors' names.
+     */
+    fun writeHeader(output: DataOutputStream, motorNames: List<String>) {
+        output.writeInt(InputRecording.MAGIC)
+        output.writeInt(InputRecording.VERSION)
+        output.writeInt(motorCount)
+        output.writeInt(analogCount)
+        output.writeInt(intCount)
+        motorNames.forEach { output.writeUTF(it) }
+    }
+
+    fun writeGamepad(buffer: ByteBuffer, offset: Int, gamepad: Gamepad) {
+        buffer.putFloat(offset, gamepad.left_stick_x)
+        buffer.putFloat(offset + 4, gamepad.left_stick_y)
+        buffer.putFloat(offset + 8, gamepad.right_stick_x)
+        buffer.putFloat(offset + 12, gamepad.right_stick_y)
+        buffer.putFloat(offset + 16, gamepad.left_trigger)
+        buffer.putFloat(offset + 20, gamepad.right_trigger)
+
+        var buttons = 0
+        BUTTONS.forEachIndexed { bit, button ->
+            if (button.get(gamepad)) buttons = buttons or (1 shl bit)
+        }
+        buffer.putInt(offset + 24, buttons)
+    }
+
+    fun readGamepad(buffer: ByteBuffer, offset: Int, gamepad: Gamepad) {
+        gamepad.left_stick_x = buffer.getFloat(offset)
+        gamepad.left_stick_y = buffer.getFloat(offset + 4)
+        gamepad.right_stick_x = buffer.getFloat(offset + 8)
+        gamepad.right_stick_y = buffer.getFloat(offset + 12)
+        gamepad.left_trigger = buffer.getFloat(offset + 16)
+        gamepad.right_trigger = buffer.getFloat(offset + 20)
+
+        val buttons = buffer.getInt(offset + 24)
+        BUTTONS.forEachIndexed { bit, button ->
+            button.set(gamepad, buttons and (1 shl bit) != 0)
+        }
+    }
+
+    private companion object {
+        const val TIMESTAMP_SIZE = 8
+        const val GAMEPAD_SIZE = 6 * 4 + 4
+        const val MOTOR_SIZE = 4 + 8
+        const val ANALOG_SIZE = 8 + 8
+
+        /**
+         * Every recorded button, in bit order. Only ever appended to, so old recordings stay readable.
+         */
+        val BUTTONS = arrayOf(
+            Gamepad::a, Gamepad::b, Gamepad::x, Gamepad::y,
+            Gamepad::dpad_up, Gamepad::dpad_down, Gamepad::dpad_left, Gamepad::dpad_right,
+            Gamepad::left_bumper, Gamepad::right_bumper,
+            Gamepad::left_stick_button, Gamepad::right_stick_button,
+            Gamepad::start, Gamepad::back, Gamepad::guide,
+        )
+    }
+}
@@ -0,0 +1,354 @@
+package org.firstinspires.ftc.teamcodekt.components.hardware
+
+import com.qualcomm.robotcore.hardware.DcMotor
+import com.qualcomm.robotcore.hardware.DcMotorEx
+import com.qualcomm.robotcore.hardware.DcMotorSimple
+import com.qualcomm.robotcore.hardware.Servo
+import org.firstinspires.ftc.robotcore.external.Telemetry
+import org.firstinspires.ftc.teamcode.util.RobotConstants
+import org.firstinspires.ftc.teamcodekt.components.scheduler.Scheduler
+import java.util.concurrent.BrokenBarrierException
+import java.util.concurrent.CyclicBarrier
+import kotlin.math.abs
+
+/**
+ * A per-tick buffer of the robot's motor powers and servo positions, flushed to the hardware once
+ * at the very end of every [Scheduler] tick.
+ *
+ * Setting a power or position only stores it; nothing is sent until the flush. At that point, each
+ * output is written only if it moved more than [MOTOR_EPSILON][RobotConstants.Output.MOTOR_EPSILON]
+ * (or [SERVO_EPSILON][RobotConstants.Output.SERVO_EPSILON]) away from the last value actually sent,
+ * so setting the same output several times in a tick, or to the same value every tick, costs at
+ * most one LynxCommand. A motor's change to exactly `0` is always sent, even from within the epsilon
+ * of it, so it's never left creeping; a `0` that was already sent isn't sent again.
+ * Motor powers are scaled by the [CurrentMonitor]'s power limit as they're sent, so every motor
+ * backs off together while a brownout is predicted.
+ *
+ * Motors driven by a library that writes their power itself (like FTCLib's `Motor`, for the lift
+ * and arm) are routed through the stage by swapping in the motor returned by [stage].
+ *
+ * The outputs are grouped by the hub they're plugged into. With
+ * [PARALLEL_DISPATCH][RobotConstants.Output.PARALLEL_DISPATCH] on, each hub after the first gets its
+ * own worker thread, and the flush writes every hub's outputs at once, waiting on a barrier for all
+ * of them to finish; a flush then takes as long as the slowest hub, rather than the sum of them.
+ * The workers are only started while it's on (they're started or stopped at the next flush after
+ * it's flipped), and are stopped when the OpMode stops. It's off by default: writes to each hub are
+ * serialized over USB/RS485 anyway, so it's only worth turning on once a measured flush shows a
+ * speedup with the outputs actually spread across hubs.
+ *
+ * Java usage example:
+ * ```java
+ * OutputStage outputs = new OutputStage();
+ *
+ * int wrist = outputs.addServo(hardwareMap.servo.get("WR"));
+ * int intake = outputs.addMotor(hardwareMap.dcMotor.get("IN"));
+ *
+ * Scheduler.start(this, () -> {
+ *     outputs.setPosition(wrist, .5);
+ *     outputs.setPower(intake, gamepad1.left_trigger);
+ *     outputs.addTo(telemetry);
+ * });
+ * ```
+ *
+ * @author KG
+ *
+ * @see Scheduler.hookFlush
+ */
+class OutputStage : Runnable, AutoCloseable {
+    private var motors = arrayOf<DcMotorSimple>()
+    private var powers = DoubleArray(0)
+    private var sentPowers = DoubleArray(0)
+    private var isPowerLimited = BooleanArray(0)
+
+    private var servos = arrayOf<Servo>()
+    private var positions = DoubleArray(0)
+    private var sentPositions = DoubleArray(0)
+
+    /**
+     * The hub each motor and servo is plugged into.
+     */
+    private val motorHubs = ArrayList<String>()
+    private val servoHubs = ArrayList<String>()
+
+    /**
+     * The motor and servo channels on each hub, rebuilt by [regroup] whenever an output is added.
+     */
+    private var hubMotors = emptyArray<IntArray>()
+    private var hubServos = emptyArray<IntArray>()
+    private var isGrouped = false
+
+    /**
+     * Whether the outputs were last grouped for parallel dispatch.
+     */
+    private var isParallel = false
+
+    /**
+     * The write counts of each hub, kept separately so that the workers never share a counter.
+     */
+    private var hubSent = LongArray(0)
+    private var hubSuppressed = LongArray(0)
+
+    private var workers = emptyArray<HubWorker>()
+    private var startBarrier: CyclicBarrier? = null
+    private var endBarrier: CyclicBarrier? = null
+
+    @Volatile
+    private var workerError: RuntimeException? = null
+
+    /**
+     * The number of writes actually sent to the hardware.
+     */
+    val sentWrites get() = hubSent.sum()
+
+    /**
+     * The number of writes skipped because the output hadn't changed enough since it was last sent.
+     */
+    val suppressedWrites get() = hubSuppressed.sum()
+
+    /**
+     * The number of hubs the outputs are spread across.
+     */
+    val hubCount get() = hubMotors.size
+
+    init {
+        Scheduler.hookFlush(this)
+    }
+
+    /**
+     * Adds a motor to be flushed every tick.
+     * @param motor The motor to write the power to.
+     * @param limitPower Whether to scale the motor's power by the [CurrentMonitor]'s power limit;
+     * off for motors whose owner already does.
+     * @return The channel to pass to [setPower].
+     */
+    @JvmOverloads
+    fun addMotor(motor: DcMotorSimple, limitPower: Boolean = true): Int {
+        motors += motor
+        powers = powers.copyOf(motors.size)
+        sentPowers = sentPowers.copyOf(motors.size).also { it[motors.size - 1] = Double.NaN }
+        isPowerLimited = isPowerLimited.copyOf(motors.size).also { it[motors.size - 1] = limitPower }
+        motorHubs += (motor as? DcMotor)?.controller?.connectionInfo ?: motor.connectionInfo
+        isGrouped = false
+        return motors.size - 1
+    }
+
+    /**
+     * Adds the given motor to be flushed every tick, and gets a motor to use in its place: powers
+     * set on it are buffered into this stage (clipped to `[-1, 1]`, as the SDK would), and read back
+     * from it, while everything else goes straight to the motor.
+     * @param motor The motor to write the power to.
+     * @param limitPower Whether to scale the motor's power by the [CurrentMonitor]'s power limit.
+     * @return The motor to set powers on from now on.
+     */
+    @JvmOverloads
+    fun stage(motor: DcMotorEx, limitPower: Boolean = true): DcMotorEx =
+        StagedMotor(motor, this, addMotor(motor, limitPower))
+
+    /**
+     * Adds a servo to be flushed every tick. Nothing is sent to it until a position is set.
+     * @param servo The servo to write the position to.
+     * @return The channel to pass to [setPosition].
+     */
+    fun addServo(servo: Servo): Int {
+        servos += servo
+        positions = positions.copyOf(servos.size).also { it[servos.size - 1] = Double.NaN }
+        sentPositions = sentPositions.copyOf(servos.size).also { it[servos.size - 1] = Double.NaN }
+        servoHubs += servo.controller?.connectionInfo ?: servo.connectionInfo
+        isGrouped = false
+        return servos.size - 1
+    }
+
+    /**
+     * Sets the power to send to the motor at the next flush.
+     */
+    fun setPower(channel: Int, power: Double) {
+        powers[channel] = power
+    }
+
+    /**
+     * Gets the power last set for the motor; not necessarily the one last sent.
+     */
+    fun getPower(channel: Int) = powers[channel]
+
+    /**
+     * Sets the position to send to the servo at the next flush.
+     */
+    fun setPosition(channel: Int, position: Double) {
+        positions[channel] = position
+    }
+
+    /**
+     * Gets the position last set for the servo; not necessarily the one last sent.
+     */
+    fun getPosition(channel: Int) = positions[channel]
+
+    /**
+     * Adds the write counts to the given telemetry.
+     */
+    fun addTo(telemetry: Telemetry) {
+        telemetry.addData("Outputs sent", sentWrites)
+        telemetry.addData("Outputs suppressed", suppressedWrites)
+    }
+
+    /**
+     * Writes every output that changed enough since it was last sent, one hub per thread if
+     * [PARALLEL_DISPATCH][RobotConstants.Output.PARALLEL_DISPATCH] is on. Called by the [Scheduler].
+     */
+    override fun run() {
+        if (!isGrouped || isParallel != RobotConstants.Output.PARALLEL_DISPATCH) {
+            regroup()
+        }
+
+        val start = startBarrier
+        val end = endBarrier
+
+        if (start == null || end == null) {
+            for (hub in hubMotors.indices) {
+                writeHub(hub)
+            }
+            return
+        }
+
+        try {
+            start.await()
+            try {
+                writeHub(0)
+            } finally {
+                end.await()
+            }
+        } catch (e: InterruptedException) {
+            Thread.currentThread().interrupt()
+            close()
+        } catch (e: BrokenBarrierException) {
+            close()
+        }
+
+        workerError?.let {
+            workerError = null
+            throw it
+        }
+    }
+
+    /**
+     * Stops the hub workers. The next flush writes every hub from the calling thread.
+     */
+    override fun close() {
+        workers.forEach { it.interrupt() }
+        workers = emptyArray()
+        startBarrier = null
+        endBarrier = null
+    }
+
+    /**
+     * Groups the outputs by hub, then restarts the workers, one for every hub after the first, if
+     * [PARALLEL_DISPATCH][RobotConstants.Output.PARALLEL_DISPATCH] is on.
+     */
+    private fun regroup() {
+        close()
+
+        val hubs = (motorHubs + servoHubs).distinct()
+
+        hubMotors = Array(hubs.size) { h -> motorHubs.indices.filter { motorHubs[it] == hubs[h] }.toIntArray() }
+        hubServos = Array(hubs.size) { h -> servoHubs.indices.filter { servoHubs[it] == hubs[h] }.toIntArray() }
+
+        hubSent = hubSent.copyOf(hubs.size)
+        hubSuppressed = hubSuppressed.copyOf(hubs.size)
+
+        isParallel = RobotConstants.Output.PARALLEL_DISPATCH
+
+        if (isParallel && hubs.size > 1) {
+            val start = CyclicBarrier(hubs.size)
+            val end = CyclicBarrier(hubs.size)
+
+            workers = Array(hubs.size - 1) { HubWorker(it + 1, start, end) }
+            workers.forEach { it.start() }
+
+            startBarrier = start
+            endBarrier = end
+        }
+
+        isGrouped = true
+    }
+
+    private fun writeHub(hub: Int) {
+        val motorEpsilon = RobotConstants.Output.MOTOR_EPSILON
+        val servoEpsilon = RobotConstants.Output.SERVO_EPSILON
+        val powerLimit = CurrentMonitor.powerLimit
+
+        for (i in hubMotors[hub]) {
+            val power = if (isPowerLimited[i]) powers[i] * powerLimit else powers[i]
+            val sent = sentPowers[i]
+
+            if (sent.isNaN() || abs(power - sent) > motorEpsilon || (power == 0.0 && sent != 0.0)) {
+                motors[i].power = power
+                sentPowers[i] = power
+                hubSent[hub]++
+            } else {
+                hubSuppressed[hub]++
+            }
+        }
+
+        for (i in hubServos[hub]) {
+            val position = positions[i]
+            val sent = sentPositions[i]
+
+            if (position.isNaN()) {
+                continue
+            }
+
+            if (sent.isNaN() || abs(position - sent) > servoEpsilon) {
+                servos[i].position = position
+                sentPositions[i] = position
+                hubSent[hub]++
+            } else {
+                hubSuppressed[hub]++
+            }
+        }
+    }
+
+    /**
+     * Writes a single hub's outputs between the two barriers, every flush, until interrupted.
+     */
+    private inner class HubWorker(
+        private val hub: Int,
+        private val start: CyclicBarrier,
+        private val end: CyclicBarrier,
+    ) : Thread("OutputStage hub $hub") {
+        init {
+            isDaemon = true
+        }
+
+        override fun run() {
+            try {
+                while (!isInterrupted) {
+                    start.await()
+                    try {
+                        writeHub(hub)
+                    } catch (e: RuntimeException) {
+                        workerError = e
+                    } finally {
+                        end.await()
+                    }
+                }
+            } catch (e: InterruptedException) {
+                // Stopped
+            } catch (e: BrokenBarrierException) {
+                // Stopped
+            }
+        }
+    }
+}
+
+/**
+ * A motor whose powers are buffered into an [OutputStage] channel, instead of written straight to
+ * the hardware.
+ */
+private class StagedMotor(
+    motor: DcMotorEx,
+    private val stage: OutputStage,
+    private val channel: Int,
+) : DcMotorEx by motor {
+    override fun setPower(power: Double) = stage.setPower(channel, power.coerceIn(-1.0, 1.0))
+
+    override fun getPower() = stage.getPower(channel)
+}
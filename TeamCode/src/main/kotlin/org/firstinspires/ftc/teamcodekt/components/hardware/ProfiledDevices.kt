@@ -0,0 +1,176 @@
+package org.firstinspires.ftc.teamcodekt.components.hardware
+
+import com.qualcomm.robotcore.hardware.AnalogInput
+import com.qualcomm.robotcore.hardware.DcMotor
+import com.qualcomm.robotcore.hardware.DcMotorEx
+import com.qualcomm.robotcore.hardware.HardwareDevice
+import com.qualcomm.robotcore.hardware.PIDFCoefficients
+import com.qualcomm.robotcore.hardware.Servo
+import com.qualcomm.robotcore.hardware.VoltageSensor
+import org.firstinspires.ftc.robotcore.external.navigation.AngleUnit
+import org.firstinspires.ftc.robotcore.external.navigation.CurrentUnit
+
+/**
+ * Marks a device already wrapped by the [HardwareProfiler], so it's never wrapped twice.
+ */
+internal interface ProfiledDevice
+
+/**
+ * A [DcMotorEx] whose reads and writes are timed by the [HardwareProfiler]. Everything else is
+ * passed straight through.
+ */
+internal class ProfiledMotor(
+    private val motor: DcMotorEx,
+    name: String,
+) : DcMotorEx by motor, ProfiledDevice {
+    private val currentPositionTime = HardwareProfiler.histogramFor(name, "getCurrentPosition")
+    private val velocityTime = HardwareProfiler.histogramFor(name, "getVelocity")
+    private val currentTime = HardwareProfiler.histogramFor(name, "getCurrent")
+    private val getPowerTime = HardwareProfiler.histogramFor(name, "getPower")
+    private val setPowerTime = HardwareProfiler.histogramFor(name, "setPower")
+    private val setVelocityTime = HardwareProfiler.histogramFor(name, "setVelocity")
+    private val setModeTime = HardwareProfiler.histogramFor(name, "setMode")
+    private val setPIDFTime = HardwareProfiler.histogramFor(name, "setPIDFCoefficients")
+
+    override fun getCurrentPosition(): Int {
+        val startTime = System.nanoTime()
+        val value = motor.currentPosition
+        currentPositionTime.record(System.nanoTime() - startTime)
+        return value
+    }
+
+    override fun getVelocity(): Double {
+        val startTime = System.nanoTime()
+        val value = motor.velocity
+        velocityTime.record(System.nanoTime() - startTime)
+        return value
+    }
+
+    override fun getVelocity(unit: AngleUnit): Double {
+        val startTime = System.nanoTime()
+        val value = motor.getVelocity(unit)
+        velocityTime.record(System.nanoTime() - startTime)
+        return value
+    }
+
+    override fun getCurrent(unit: CurrentUnit): Double {
+        val startTime = System.nanoTime()
+        val value = motor.getCurrent(unit)
+        currentTime.record(System.nanoTime() - startTime)
+        return value
+    }
+
+    override fun getPower(): Double {
+        val startTime = System.nanoTime()
+        val value = motor.power
+        getPowerTime.record(System.nanoTime() - startTime)
+        return value
+    }
+
+    override fun setPower(power: Double) {
+        val startTime = System.nanoTime()
+        motor.power = power
+        setPowerTime.record(System.nanoTime() - startTime)
+    }
+
+    override fun setVelocity(angularRate: Double) {
+        val startTime = System.nanoTime()
+        motor.velocity = angularRate
+        setVelocityTime.record(System.nanoTime() - startTime)
+    }
+
+    override fun setVelocity(angularRate: Double, unit: AngleUnit) {
+        val startTime = System.nanoTime()
+        motor.setVelocity(angularRate, unit)
+        setVelocityTime.record(System.nanoTime() - startTime)
+    }
+
+    override fun setMode(mode: DcMotor.RunMode) {
+        val startTime = System.nanoTime()
+        motor.mode = mode
+        setModeTime.record(System.nanoTime() - startTime)
+    }
+
+    override fun setPIDFCoefficients(mode: DcMotor.RunMode, pidfCoefficients: PIDFCoefficients) {
+        val startTime = System.nanoTime()
+        motor.setPIDFCoefficients(mode, pidfCoefficients)
+        setPIDFTime.record(System.nanoTime() - startTime)
+    }
+}
+
+/**
+ * A [Servo] whose reads and writes are timed by the [HardwareProfiler]. Everything else is passed
+ * straight through.
+ */
+internal class ProfiledServo(
+    private val servo: Servo,
+    name: String,
+) : Servo by servo, ProfiledDevice {
+    private val getPositionTime = HardwareProfiler.histogramFor(name, "getPosition")
+    private val setPositionTime = HardwareProfiler.histogramFor(name, "setPosition")
+
+    override fun getPosition(): Double {
+        val startTime = System.nanoTime()
+        val value = servo.position
+        getPositionTime.record(System.nanoTime() - startTime)
+        return value
+    }
+
+    override fun setPosition(position: Double) {
+        val startTime = System.nanoTime()
+        servo.position = position
+        setPositionTime.record(System.nanoTime() - startTime)
+    }
+}
+
+/**
+ * A [VoltageSensor] whose reads are timed by the [HardwareProfiler]. Everything else is passed
+ * straight through.
+ */
+internal class ProfiledVoltageSensor(
+    private val sensor: VoltageSensor,
+    name: String,
+) : VoltageSensor by sensor, ProfiledDevice {
+    private val voltageTime = HardwareProfiler.histogramFor(name, "getVoltage")
+
+    override fun getVoltage(): Double {
+        val startTime = System.nanoTime()
+        val value = sensor.voltage
+        voltageTime.record(System.nanoTime() - startTime)
+        return value
+    }
+}
+
+/**
+ * An [AnalogInput] whose reads are timed by the [HardwareProfiler].
+ *
+ * [AnalogInput] is a class rather than an interface, so this subclasses it without a controller of
+ * its own, and forwards every call to the wrapped input instead.
+ */
+internal class ProfiledAnalogInput(
+    internal val input: AnalogInput,
+    name: String,
+) : AnalogInput(null, 0), ProfiledDevice {
+    private val voltageTime = HardwareProfiler.histogramFor(name, "getVoltage")
+
+    override fun getVoltage(): Double {
+        val startTime = System.nanoTime()
+        val value = input.voltage
+        voltageTime.record(System.nanoTime() - startTime)
+        return value
+    }
+
+    override fun getMaxVoltage() = input.maxVoltage
+
+    override fun getManufacturer(): HardwareDevice.Manufacturer = input.manufacturer
+
+    override fun getDeviceName(): String = input.deviceName
+
+    override fun getConnectionInfo(): String = input.connectionInfo
+
+    override fun getVersion() = input.version
+
+    override fun resetDeviceConfigurationForOpMode() = input.resetDeviceConfigurationForOpMode()
+
+    override fun close() = input.close()
+}
@@ -0,0 +1,210 @@
+package org.firstinspires.ftc.teamcodekt.components.mechanism
+
+import org.firstinspires.ftc.teamcode.components.arm.Arm
+import org.firstinspires.ftc.teamcode.components.lift.Lift
+import org.firstinspires.ftc.teamcode.components.wrist.Wrist
+import org.firstinspires.ftc.teamcode.util.RobotConstants
+import org.firstinspires.ftc.teamcodekt.components.scheduler.SchedulerClock
+import kotlin.math.abs
+import kotlin.math.max
+import kotlin.math.sign
+import kotlin.math.sqrt
+
+/**
+ * Plans coordinated moves of the lift, arm, and wrist to a [MechanismPose], starting each one as
+ * early as the others allow, instead of setting all three at once and padding timers around them.
+ *
+ * The one constraint is that the arm may only swing past vertical while the lift is at least
+ * [SWING_MIN_LIFT_HEIGHT][RobotConstants.Mechanism.SWING_MIN_LIFT_HEIGHT] high, so it never
+ * swings through the drivetrain. When a move swings the arm over with the lift (or its target)
+ * below that:
+ * - the lift first goes to the clearance height (or its target, if higher);
+ * - the arm starts so as to reach vertical just as the lift clears, and never before the lift has
+ *   actually cleared;
+ * - the wrist flips once the arm has actually swung past vertical;
+ * - and only then does the lift go down to its target.
+ *
+ * An arm within [VERTICAL_DEADBAND][RobotConstants.Mechanism.VERTICAL_DEADBAND] of vertical counts
+ * as on neither side, so a move from (or to) the resting pose, which is exactly vertical, never
+ * depends on which way the analog sensor's noise happens to lean.
+ *
+ * Otherwise all three start straight away. Each mechanism still runs its own controller; the plan
+ * only decides when each target is issued, and estimates the timings from trapezoidal profiles of
+ * each axis (the lift's [MAX_VEL][RobotConstants.Lift.MAX_VEL], the arm's
+ * [ARM_MAX_VEL][RobotConstants.Mechanism.ARM_MAX_VEL], and so on). The gates on the lift's and
+ * arm's measured positions keep the move safe even when the estimates are off.
+ *
+ * A [MechanismMove] is run once per tick, like any other hold position.
+ *
+ * Java usage example:
+ * ```java
+ * MechanismPlanner planner = new MechanismPlanner(lift, arm, wrist);
+ *
+ * MechanismMove move = planner.plan(MechanismPose.forwardsAuto(RobotConstants.Lift.HIGH));
+ * Scheduler.beforeEach(move);
+ *
+ * telemetry.addData("Deposit ready in", move.getTimeRemaining());
+ * ```
+ *
+ * @author KG
+ */
+class MechanismPlanner(private val lift: Lift, private val arm: Arm, private val wrist: Wrist) {
+    /**
+     * Plans a move from where the mechanisms are now to the given pose, starting now.
+     */
+    fun plan(target: MechanismPose): MechanismMove {
+        val liftNow = lift.currentPos.toDouble()
+        val armNow = armPosition()
+        val vertical = RobotConstants.Arm.VERTICAL
+        val clearance = RobotConstants.Mechanism.SWING_MIN_LIFT_HEIGHT
+
+        val crossesVertical = sideOfVertical(armNow) * sideOfVertical(target.armPosition) < 0
+        val needsClearance = crossesVertical && (liftNow < clearance || target.liftHeight < clearance)
+
+        val armDistance = abs(target.armPosition - armNow)
+        val armTime = travelTime(armDistance, armDistance, ARM)
+        val armCrossing = if (crossesVertical) travelTime(abs(vertical - armNow), armDistance, ARM) else 0.0
+
+        val liftHold = if (needsClearance) max(target.liftHeight, clearance) else target.liftHeight
+        val liftClearing = if (needsClearance && liftNow < clearance) {
+            travelTime(clearance - liftNow, abs(liftHold - liftNow), LIFT)
+        } else {
+            0.0
+        }
+
+        val armStart = max(0.0, liftClearing - armCrossing)
+        val crossing = armStart + armCrossing
+
+        val liftEnd = if (liftHold != target.liftHeight) {
+            crossing + travelTime(abs(liftHold - target.liftHeight).toDouble())
+        } else {
+            travelTime(abs(target.liftHeight - liftNow))
+        }
+        val wristEnd = (if (crossesVertical) crossing else 0.0) + RobotConstants.Mechanism.WRIST_TRAVEL_SECONDS
+
+        val duration = maxOf(armStart + armTime, liftEnd, wristEnd)
+
+        return MechanismMove(target, liftHold, needsClearance, crossesVertical, armStart, duration)
+    }
+
+    /**
+     * The arm's position, from the fused estimate if it's in use.
+     */
+    private fun armPosition() =
+        if (RobotConstants.Arm.USE_FUSED_ESTIMATE) arm.fusedPosition else arm.armPosition
+
+    /**
+     * Gets which side of vertical the given arm position is on: `1` or `-1`, or `0` within
+     * [VERTICAL_DEADBAND][RobotConstants.Mechanism.VERTICAL_DEADBAND] of it.
+     */
+    private fun sideOfVertical(position: Double): Double {
+        val offset = position - RobotConstants.Arm.VERTICAL
+        return if (abs(offset) <= RobotConstants.Mechanism.VERTICAL_DEADBAND) 0.0 else sign(offset)
+    }
+
+    /**
+     * A move of the three mechanisms, run once per tick to issue (and hold) each target when it's
+     * due. Lift targets are only issued once each, so that manual adjustment still works.
+     */
+    inner class MechanismMove internal constructor(
+        val target: MechanismPose,
+        private val liftHold: Int,
+        private val needsClearance: Boolean,
+        private val crossesVertical: Boolean,
+        private val armStartSeconds: Double,
+        /**
+         * The planned length of the move, in seconds.
+         */
+        val duration: Double,
+    ) : Runnable {
+        private val startNanos = SchedulerClock.nanoTime()
+
+        private var isLiftHoldIssued = false
+        private var isLiftIssued = false
+        private var isArmIssued = false
+        private var isWristIssued = false
+
+        private val elapsedSeconds get() = (SchedulerClock.nanoTime() - startNanos) / 1e9
+
+        /**
+         * The planned time left until every mechanism reaches its target, in seconds.
+         */
+        val timeRemaining get() = max(0.0, duration - elapsedSeconds)
+
+        /**
+         * Whether every target has been issued and the planned time is up.
+         */
+        val isDone get() = isLiftIssued && isArmIssued && isWristIssued && timeRemaining == 0.0
+
+        /**
+         * Whether the move has run [MOVE_TIMEOUT_SECONDS][RobotConstants.Mechanism.MOVE_TIMEOUT_SECONDS]
+         * past its planned duration without being done, e.g. because the arm is stuck short of
+         * vertical; for anything waiting on [isDone] to give up on.
+         */
+        val isOverdue get() = !isDone && elapsedSeconds > duration + RobotConstants.Mechanism.MOVE_TIMEOUT_SECONDS
+
+        override fun run() {
+            if (!isLiftHoldIssued) {
+                lift.height = liftHold
+                isLiftHoldIssued = true
+            }
+
+            if (!isArmIssued) {
+                val liftClear = !needsClearance || lift.currentPos >= RobotConstants.Mechanism.SWING_MIN_LIFT_HEIGHT
+                isArmIssued = elapsedSeconds >= armStartSeconds && liftClear
+            }
+            if (isArmIssued) {
+                target.commandArm(arm)
+            }
+
+            val armPastVertical = !crossesVertical || isArmIssued &&
+                sideOfVertical(armPosition()) == sideOfVertical(target.armPosition)
+
+            if (!isWristIssued) {
+                isWristIssued = armPastVertical
+            }
+            if (isWristIssued) {
+                target.commandWrist(wrist)
+            }
+
+            if (!isLiftIssued && armPastVertical) {
+                if (liftHold != target.liftHeight) {
+                    lift.height = target.liftHeight
+                }
+                isLiftIssued = true
+            }
+        }
+    }
+
+    private class Limits(val maxVel: () -> Double, val maxAccel: () -> Double)
+
+    private companion object {
+        val ARM = Limits({ RobotConstants.Mechanism.ARM_MAX_VEL }, { RobotConstants.Mechanism.ARM_MAX_ACCEL })
+        val LIFT = Limits({ RobotConstants.Lift.MAX_VEL }, { RobotConstants.Lift.MAX_ACCEL })
+
+        fun travelTime(distance: Double) = travelTime(distance, distance, LIFT)
+
+        /**
+         * Gets the time a trapezoidal profile over [total] takes to cover the first [distance] of
+         * it, from rest to rest.
+         */
+        fun travelTime(distance: Double, total: Double, limits: Limits): Double {
+            val maxAccel = limits.maxAccel()
+            if (total <= 0 || maxAccel <= 0) {
+                return 0.0
+            }
+
+            val peakVel = minOf(limits.maxVel(), sqrt(total * maxAccel))
+            val accelTime = peakVel / maxAccel
+            val accelDistance = 0.5 * maxAccel * accelTime * accelTime
+            val totalTime = 2 * accelTime + (total - 2 * accelDistance) / peakVel
+
+            val s = distance.coerceIn(0.0, total)
+            return when {
+                s <= accelDistance -> sqrt(2 * s / maxAccel)
+                s <= total - accelDistance -> accelTime + (s - accelDistance) / peakVel
+                else -> totalTime - sqrt(2 * (total - s) / maxAccel)
+            }
+        }
+    }
+}
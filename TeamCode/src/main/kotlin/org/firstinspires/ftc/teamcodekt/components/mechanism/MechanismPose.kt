@@ -0,0 +1,63 @@
+package org.firstinspires.ftc.teamcodekt.components.mechanism
+
+import org.firstinspires.ftc.teamcode.components.arm.Arm
+import org.firstinspires.ftc.teamcode.components.wrist.Wrist
+import org.firstinspires.ftc.teamcode.util.RobotConstants
+import java.util.function.Consumer
+
+/**
+ * A target state for the lift, arm, and wrist together, for the [MechanismPlanner] to move to.
+ *
+ * The arm and wrist are commanded through their usual setters, which are reapplied every tick once
+ * issued (like any other hold position); [armPosition] is the arm setter's target, in the analog
+ * sensor's units, used to plan the move's timing.
+ *
+ * Java usage example:
+ * ```java
+ * MechanismPose deposit = MechanismPose.forwardsAuto(RobotConstants.Lift.HIGH);
+ * ```
+ *
+ * @param liftHeight The lift's target height, in ticks.
+ * @param armPosition The arm's target, in the analog sensor's units.
+ * @param armCommand Sets the arm's target.
+ * @param wristCommand Sets the wrist's target.
+ *
+ * @author KG
+ */
+class MechanismPose(
+    val liftHeight: Int,
+    val armPosition: Double,
+    private val armCommand: Consumer<Arm>,
+    private val wristCommand: Consumer<Wrist>,
+) {
+    fun commandArm(arm: Arm) = armCommand.accept(arm)
+
+    fun commandWrist(wrist: Wrist) = wristCommand.accept(wrist)
+
+    companion object {
+        @JvmStatic
+        fun forwardsAuto(liftHeight: Int) = MechanismPose(
+            liftHeight, RobotConstants.Arm.FORWARDS_AUTO, Arm::setToForwardsAutoPos, Wrist::setToForwardsPos,
+        )
+
+        @JvmStatic
+        fun backwardsAuto(liftHeight: Int) = MechanismPose(
+            liftHeight, RobotConstants.Arm.BACKWARDS_AUTO, Arm::setToBackwardsAutoPos, Wrist::setToBackwardsPos,
+        )
+
+        @JvmStatic
+        fun forwardsTele(liftHeight: Int) = MechanismPose(
+            liftHeight, RobotConstants.Arm.FORWARDS_TELE, Arm::setToForwardsTelePos, Wrist::setToForwardsPos,
+        )
+
+        @JvmStatic
+        fun backwardsTele(liftHeight: Int) = MechanismPose(
+            liftHeight, RobotConstants.Arm.BACKWARDS_TELE, Arm::setToBackwardsTelePos, Wrist::setToBackwardsPos,
+        )
+
+        @JvmStatic
+        fun resting(liftHeight: Int) = MechanismPose(
+            liftHeight, RobotConstants.Arm.VERTICAL, Arm::setToRestingPos, Wrist::setToRestingPos,
+        )
+    }
+}
@@ -7,6 +7,8 @@ import com.qualcomm.robotcore.hardware.HardwareMap
 import org.firstinspires.ftc.robotcore.external.Telemetry
 import org.firstinspires.ftc.teamcodekt.components.gamepad.getDriveSticks
 import org.firstinspires.ftc.teamcodekt.components.gamepad.isJoystickTriggered
+import org.firstinspires.ftc.teamcodekt.components.hardware.CurrentMonitor
+import org.firstinspires.ftc.teamcodekt.components.hardware.OutputStage
 import org.firstinspires.ftc.teamcodekt.util.DataSupplier
 import kotlin.math.*
 
@@ -37,6 +39,10 @@ import kotlin.math.*
  * @property backLeft The back left motor.
  * @property backRight The back right motor.
  *
+ * The powers last set are kept in [powers], so [transformPowers] never has to read them back from
+ * the hardware. If an [OutputStage] is attached through [attachOutput], the powers are written
+ * through it (once per tick, at most) instead of straight to the motors.
+ *
  * @see [initializedDriveMotors]
  *
  * @author KG
@@ -47,22 +53,77 @@ class DriveMotors(hwMap: HardwareMap) {
     private val backLeft = initializedMotor("BL", hwMap, reversed = true)
     private val backRight = initializedMotor("BR", hwMap)
 
+    private val motors = arrayOf(frontLeft, frontRight, backLeft, backRight)
+
+    /**
+     * The powers last set, in the order fl, fr, bl, br.
+     */
+    private val powers = DoubleArray(4)
+
+    private var output: OutputStage? = null
+    private val outputChannels = IntArray(4)
+
     private val A_MULT = 1
 
     var driveType = DriveType.IMPROVED
 
+    init {
+        for (name in arrayOf("FL", "FR", "BL", "BR")) {
+            CurrentMonitor.register(hwMap, name)
+        }
+    }
+
+    /**
+     * Writes the motor powers through the given [OutputStage] from now on.
+     */
+    fun attachOutput(output: OutputStage) {
+        for (i in motors.indices) {
+            outputChannels[i] = output.addMotor(motors[i])
+        }
+        this.output = output
+    }
+
+    /**
+     * Sets the motor powers, clipped to `[-1, 1]` as the SDK would clip them on the motors.
+     */
     fun setPowers(flp: Number, frp: Number, blp: Number, brp: Number) {
-        frontLeft.power = flp.toDouble()
-        frontRight.power = frp.toDouble()
-        backLeft.power = blp.toDouble()
-        backRight.power = brp.toDouble()
+        powers[0] = flp.toDouble().coerceIn(-1.0, 1.0)
+        powers[1] = frp.toDouble().coerceIn(-1.0, 1.0)
+        powers[2] = blp.toDouble().coerceIn(-1.0, 1.0)
+        powers[3] = brp.toDouble().coerceIn(-1.0, 1.0)
+        writePowers()
+    }
+
+    /**
+     * Sets the motor powers, each clipped to `[-1, 1]` before being multiplied by [scale]; the
+     * same as setting the raw powers then scaling what the motors report back, without the reads.
+     */
+    private fun setScaledPowers(flp: Number, frp: Number, blp: Number, brp: Number, scale: Double) {
+        setPowers(
+            flp.toDouble().coerceIn(-1.0, 1.0) * scale,
+            frp.toDouble().coerceIn(-1.0, 1.0) * scale,
+            blp.toDouble().coerceIn(-1.0, 1.0) * scale,
+            brp.toDouble().coerceIn(-1.0, 1.0) * scale,
+        )
     }
 
     fun transformPowers(scaleFunction: (Double) -> Double) {
-        frontLeft.power = scaleFunction(frontLeft.power)
-        frontRight.power = scaleFunction(frontRight.power)
-        backLeft.power = scaleFunction(backLeft.power)
-        backRight.power = scaleFunction(backRight.power)
+        for (i in powers.indices) {
+            powers[i] = scaleFunction(powers[i]).coerceIn(-1.0, 1.0)
+        }
+        writePowers()
+    }
+
+    private fun writePowers() {
+        val output = output
+
+        for (i in motors.indices) {
+            if (output != null) {
+                output.setPower(outputChannels[i], powers[i])
+            } else {
+                motors[i].power = powers[i] * CurrentMonitor.powerLimit
+            }
+        }
     }
 
     fun logData(telemetry: Telemetry, dataSupplier: DataSupplier<DcMotorEx>) {
@@ -110,8 +171,7 @@ class DriveMotors(hwMap: HardwareMap) {
         blp = powerScaling(blp)
         brp = powerScaling(brp)
 
-        setPowers(flp, frp, blp, brp)
-        transformPowers { it * powerMulti / powerScale }
+        setScaledPowers(flp, frp, blp, brp, powerMulti / powerScale)
     }
 
     private fun driveImproved(gamepad: Gamepad, _powerMulti: Double) = with(gamepad) {
@@ -134,8 +194,7 @@ class DriveMotors(hwMap: HardwareMap) {
 
         val powerMulti = if (!isJoystickTriggered()) 0.0 else _powerMulti
 
-        setPowers(flp, frp, blp, brp)
-        transformPowers { it * powerMulti / powerScale }
+        setScaledPowers(flp, frp, blp, brp, powerMulti / powerScale)
     }
 
     private fun driveFc(gamepad: Gamepad, localizer: Localizer, _powerMulti: Double) =
@@ -156,8 +215,7 @@ class DriveMotors(hwMap: HardwareMap) {
 
             val powerMulti = if (!isJoystickTriggered()) 0.0 else _powerMulti
 
-            setPowers(flp, frp, blp, brp)
-            transformPowers { it * powerMulti / powerScale }
+            setScaledPowers(flp, frp, blp, brp, powerMulti / powerScale)
         }
 }
 
@@ -0,0 +1,270 @@
+package org.firstinspires.ftc.teamcodekt.components.scheduler
+
+import org.firstinspires.ftc.teamcodekt.components.scheduler.listeners.Listener
+
+/**
+ * A frozen, flat snapshot of the [Scheduler]'s listener graph, ticked without allocating.
+ *
+ * Each listener's subscribed actions are laid out contiguously in the [actions] and [triggers]
+ * arrays (CSR style), with [actionStarts] marking where each listener's slice begins. This keeps
+ * the original `update -> doActiveActions` ordering per listener, while replacing the set/map
+ * iterators with plain indexed loops over primitive arrays.
+ *
+ * Listeners and [periodic tasks][PeriodicTask] with a rate divisor only run on the ticks matching
+ * the phase assigned to them by the [PhasePlanner]; everything else runs on every tick.
+ *
+ * A schedule is immutable once built; the [Scheduler] simply discards and rebuilds it whenever a
+ * listener is hooked, an action is subscribed, or a rate changes.
+ *
+ * @author KG
+ *
+ * @see Scheduler
+ * @see SignalTrigger
+ */
+internal class CompiledSchedule(
+    snapshots: Collection<Runnable>,
+    flushes: Collection<Runnable>,
+    listeners: Collection<Listener>,
+    tasks: List<PeriodicTask>,
+) {
+    private val snapshots = snapshots.toTypedArray()
+
+    private val flushes = flushes.toTypedArray()
+
+    private val listeners = listeners.toTypedArray()
+
+    private val tasks = tasks.map { it.task }.toTypedArray()
+
+    private val actionStarts = IntArray(this.listeners.size + 1)
+
+    private val actions: Array<Runnable>
+
+    private val triggers: IntArray
+
+    /**
+     * The rate divisor of each entry; listeners first, then tasks.
+     */
+    private val divisors = IntArray(this.listeners.size + this.tasks.size) { i ->
+        if (i < this.listeners.size) {
+            this.listeners[i].rateDivisor
+        } else {
+            tasks[i - this.listeners.size].divisor
+        }
+    }
+
+    /**
+     * The phase of each entry; an entry runs on the ticks where `tick % divisor == phase`.
+     */
+    private val phases = PhasePlanner.assignPhases(divisors)
+
+    /**
+     * The display name of each entry, precomputed so reporting never allocates.
+     */
+    private val entryNames = Array(divisors.size) { i ->
+        if (i < this.listeners.size) {
+            this.listeners[i].name ?: "listener #$i (${this.listeners[i].javaClass.simpleName})"
+        } else {
+            val k = i - this.listeners.size
+            tasks[k].name ?: "periodic task #$k (every ${divisors[i]} ticks)"
+        }
+    }
+
+    /**
+     * The histograms of each listener's `update()`, each action, and each task, set through
+     * [attachProfiler].
+     */
+    private var updateHistograms = emptyArray<LatencyHistogram>()
+    private var actionHistograms = emptyArray<LatencyHistogram>()
+    private var taskHistograms = emptyArray<LatencyHistogram>()
+
+    /**
+     * The index of the slowest entry during the last [tickTimed], or `-1` if there was none.
+     */
+    var slowestEntry = -1
+        private set
+
+    /**
+     * How long the slowest entry took during the last [tickTimed], in nanoseconds.
+     */
+    var slowestEntryNanos = 0L
+        private set
+
+    init {
+        val totalActions = this.listeners.sumOf { it.subscribedActions.size }
+
+        val actionsList = ArrayList<Runnable>(totalActions)
+        triggers = IntArray(totalActions)
+
+        this.listeners.forEachIndexed { i, listener ->
+            actionStarts[i] = actionsList.size
+
+            listener.subscribedActions.forEach { (action, trigger) ->
+                triggers[actionsList.size] = trigger.ordinal
+                actionsList += action
+            }
+        }
+        actionStarts[this.listeners.size] = actionsList.size
+
+        actions = actionsList.toTypedArray()
+    }
+
+    /**
+     * The number of listeners frozen into this schedule.
+     */
+    val listenerCount get() = listeners.size
+
+    /**
+     * The number of actions frozen into this schedule.
+     */
+    val actionCount get() = actions.size
+
+    /**
+     * Runs each snapshot stage, in the order they were hooked.
+     */
+    fun takeSnapshots() {
+        for (i in snapshots.indices) {
+            snapshots[i].run()
+        }
+    }
+
+    /**
+     * Runs each flush stage, in the order they were hooked.
+     */
+    fun flush() {
+        for (i in flushes.indices) {
+            flushes[i].run()
+        }
+    }
+
+    /**
+     * Updates each listener due on the given tick, then runs its actions whose triggers are met,
+     * then runs each periodic task due on the given tick.
+     * @param tick The number of the current tick.
+     */
+    fun tick(tick: Long) {
+        for (i in divisors.indices) {
+            if (isDue(i, tick)) {
+                runEntry(i)
+            }
+        }
+    }
+
+    /**
+     * Same as [tick], but also times each entry, recording the [slowestEntry].
+     * @param tick The number of the current tick.
+     */
+    fun tickTimed(tick: Long) {
+        slowestEntry = -1
+        slowestEntryNanos = 0L
+
+        for (i in divisors.indices) {
+            if (!isDue(i, tick)) {
+                continue
+            }
+
+            val startTime = System.nanoTime()
+            runEntry(i)
+            val elapsed = System.nanoTime() - startTime
+
+            if (elapsed > slowestEntryNanos) {
+                slowestEntry = i
+                slowestEntryNanos = elapsed
+            }
+        }
+    }
+
+    /**
+     * Looks up the histograms that [tickProfiled] records into.
+     * @param profiler The profiler to record into.
+     */
+    fun attachProfiler(profiler: SchedulerProfiler) {
+        updateHistograms = Array(listeners.size) { i ->
+            profiler.histogramFor(listeners[i], "${entryNames[i]} update")
+        }
+
+        actionHistograms = Array(actions.size) { j ->
+            val i = listenerOfAction(j)
+            val trigger = SignalTrigger.values()[triggers[j]]
+            profiler.histogramFor(actions[j], "${entryNames[i]} $trigger #${j - actionStarts[i]}")
+        }
+
+        taskHistograms = Array(tasks.size) { k ->
+            profiler.histogramFor(tasks[k], entryNames[listeners.size + k])
+        }
+    }
+
+    /**
+     * Same as [tick], but also records how long each listener update, action, and task took into
+     * the histograms found by [attachProfiler].
+     * @param tick The number of the current tick.
+     */
+    fun tickProfiled(tick: Long) {
+        for (i in divisors.indices) {
+            if (!isDue(i, tick)) {
+                continue
+            }
+
+            if (i < listeners.size) {
+                tickListenerProfiled(i)
+            } else {
+                val k = i - listeners.size
+                val startTime = System.nanoTime()
+                tasks[k].run()
+                taskHistograms[k].record(System.nanoTime() - startTime)
+            }
+        }
+    }
+
+    /**
+     * Gets the display name of the entry at the given index.
+     */
+    fun entryName(index: Int) = entryNames[index]
+
+    private fun isDue(i: Int, tick: Long): Boolean {
+        val divisor = divisors[i]
+        return divisor == 1 || tick % divisor == phases[i].toLong()
+    }
+
+    private fun runEntry(i: Int) {
+        if (i < listeners.size) {
+            tickListener(i)
+        } else {
+            tasks[i - listeners.size].run()
+        }
+    }
+
+    private fun tickListenerProfiled(i: Int) {
+        val listener = listeners[i]
+
+        val startTime = System.nanoTime()
+        listener.update()
+        updateHistograms[i].record(System.nanoTime() - startTime)
+
+        for (j in actionStarts[i] until actionStarts[i + 1]) {
+            if (listener.isTriggered(triggers[j])) {
+                val actionStart = System.nanoTime()
+                actions[j].run()
+                actionHistograms[j].record(System.nanoTime() - actionStart)
+            }
+        }
+    }
+
+    private fun listenerOfAction(j: Int): Int {
+        var i = 0
+        while (actionStarts[i + 1] <= j) {
+            i++
+        }
+        return i
+    }
+
+    private fun tickListener(i: Int) {
+        val listener = listeners[i]
+        listener.update()
+
+        for (j in actionStarts[i] until actionStarts[i + 1]) {
+            if (listener.isTriggered(triggers[j])) {
+                actions[j].run()
+            }
+        }
+    }
+}
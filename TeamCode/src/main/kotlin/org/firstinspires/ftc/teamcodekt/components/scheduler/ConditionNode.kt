@@ -0,0 +1,119 @@
+package org.firstinspires.ftc.teamcodekt.components.scheduler
+
+import org.firstinspires.ftc.teamcodekt.components.scheduler.listeners.Listener
+import org.firstinspires.ftc.teamcodekt.util.Condition
+import java.util.function.BooleanSupplier
+
+/**
+ * A node in a DAG of boolean conditions, built on the primitive [BooleanSupplier] so that
+ * evaluating it never boxes.
+ *
+ * While the [Scheduler] is ticking, each node is evaluated at most once per tick; the result is
+ * memoized against the tick's serial number, so a sub-condition shared between several composed
+ * [Listeners][Listener] (e.g. a button used both alone and in `button.and(liftIsHighEnough)`) is
+ * only computed once. Outside of a tick, nodes are simply evaluated on every call.
+ *
+ * Java usage example:
+ * ```java
+ * ConditionNode liftIsHighEnough = ConditionNode.of(() -> lift.getHeight() > 500);
+ *
+ * gamepadx1.a.and(liftIsHighEnough)
+ *     .onRise(this::doSomething);
+ * ```
+ *
+ * @author KG
+ *
+ * @see Listener
+ */
+abstract class ConditionNode : BooleanSupplier {
+    private var memoSerial = -1L
+    private var memoValue = false
+
+    /**
+     * Evaluates this node, or returns its memoized value if it was already evaluated this tick.
+     */
+    final override fun getAsBoolean(): Boolean {
+        if (!TickClock.isTicking) {
+            return evaluate()
+        }
+
+        val serial = TickClock.serial
+
+        if (memoSerial != serial) {
+            memoValue = evaluate()
+            memoSerial = serial
+        }
+        return memoValue
+    }
+
+    /**
+     * Computes the value of this node.
+     */
+    protected abstract fun evaluate(): Boolean
+
+    infix fun and(other: ConditionNode): ConditionNode = And(this, other)
+
+    infix fun or(other: ConditionNode): ConditionNode = Or(this, other)
+
+    infix fun xor(other: ConditionNode): ConditionNode = Xor(this, other)
+
+    operator fun not(): ConditionNode = Not(this)
+
+    infix fun nand(other: ConditionNode) = !(this and other)
+
+    infix fun nor(other: ConditionNode) = !(this or other)
+
+    infix fun xnor(other: ConditionNode) = !(this xor other)
+
+    private class Leaf(private val supplier: BooleanSupplier) : ConditionNode() {
+        override fun evaluate() = supplier.getAsBoolean()
+    }
+
+    private class ConditionLeaf(private val condition: Condition) : ConditionNode() {
+        override fun evaluate() = condition()
+    }
+
+    private class Not(private val a: ConditionNode) : ConditionNode() {
+        override fun evaluate() = !a.getAsBoolean()
+    }
+
+    private class And(private val a: ConditionNode, private val b: ConditionNode) : ConditionNode() {
+        override fun evaluate() = a.getAsBoolean() && b.getAsBoolean()
+    }
+
+    private class Or(private val a: ConditionNode, private val b: ConditionNode) : ConditionNode() {
+        override fun evaluate() = a.getAsBoolean() || b.getAsBoolean()
+    }
+
+    private class Xor(private val a: ConditionNode, private val b: ConditionNode) : ConditionNode() {
+        override fun evaluate() = a.getAsBoolean() xor b.getAsBoolean()
+    }
+
+    companion object {
+        /**
+         * Creates a leaf node from the given primitive supplier.
+         * @param supplier The condition to evaluate.
+         * @return The new node.
+         */
+        @JvmStatic
+        fun of(supplier: BooleanSupplier): ConditionNode = Leaf(supplier)
+
+        /**
+         * Creates a leaf node from the given Kotlin [Condition].
+         */
+        internal fun wrap(condition: Condition): ConditionNode = ConditionLeaf(condition)
+    }
+}
+
+/**
+ * The tick serial number that [ConditionNode]s memoize against. Advanced by the [SchedulerScope]
+ * at the start of every tick, and never reset, so a value memoized in one OpMode run is never
+ * mistaken for one from the next.
+ */
+internal object TickClock {
+    @JvmField
+    var serial = 0L
+
+    @JvmField
+    var isTicking = false
+}
@@ -0,0 +1,106 @@
+package org.firstinspires.ftc.teamcodekt.components.scheduler
+
+import com.qualcomm.robotcore.util.RobotLog
+import org.firstinspires.ftc.robotcore.external.Telemetry
+
+/**
+ * Running statistics about how well the [Scheduler] holds its target period when started through
+ * [Scheduler.startFixedRate].
+ *
+ * Jitter is measured as how late each tick started relative to when it was scheduled to start.
+ * An overrun is a tick that ran past the start of the next one; each overrun is logged to the
+ * [RobotLog] along with the block of code that took the longest during that tick.
+ *
+ * @author KG
+ *
+ * @see Scheduler.startFixedRate
+ */
+class LoopTimingStats {
+    /**
+     * The target period of the loop, in nanoseconds.
+     */
+    var periodNanos = 0L
+        private set
+
+    /**
+     * The number of ticks measured.
+     */
+    var ticks = 0L
+        private set
+
+    /**
+     * The number of ticks that ran past their deadline.
+     */
+    var overruns = 0L
+        private set
+
+    /**
+     * The largest start-time jitter seen, in nanoseconds.
+     */
+    var maxJitterNanos = 0L
+        private set
+
+    private var totalJitterNanos = 0L
+
+    /**
+     * The average start-time jitter, in nanoseconds.
+     */
+    val avgJitterNanos get() = if (ticks == 0L) 0.0 else totalJitterNanos.toDouble() / ticks
+
+    /**
+     * How far past its deadline the last overrunning tick ran, in nanoseconds.
+     */
+    var lastOverrunNanos = 0L
+        private set
+
+    /**
+     * The block of code that took the longest during the last overrunning tick.
+     */
+    var lastOverrunCulprit: String? = null
+        private set
+
+    /**
+     * Clears the statistics and sets a new target period.
+     */
+    fun reset(periodNanos: Long) {
+        this.periodNanos = periodNanos
+        ticks = 0
+        overruns = 0
+        maxJitterNanos = 0
+        totalJitterNanos = 0
+        lastOverrunNanos = 0
+        lastOverrunCulprit = null
+    }
+
+    internal fun recordTick(jitterNanos: Long) {
+        ticks++
+        totalJitterNanos += jitterNanos
+        maxJitterNanos = maxOf(maxJitterNanos, jitterNanos)
+    }
+
+    internal fun recordOverrun(overrunNanos: Long, culprit: String, culpritNanos: Long) {
+        overruns++
+        lastOverrunNanos = overrunNanos
+        lastOverrunCulprit = culprit
+
+        RobotLog.ww(
+            TAG, "Tick %d overran by %.2fms; slowest was %s at %.2fms",
+            ticks, overrunNanos / 1e6, culprit, culpritNanos / 1e6
+        )
+    }
+
+    /**
+     * Adds the statistics to the given [Telemetry].
+     */
+    fun addTo(telemetry: Telemetry) {
+        telemetry.addData("Loop period (ms)", periodNanos / 1e6)
+        telemetry.addData("Avg. jitter (ms)", avgJitterNanos / 1e6)
+        telemetry.addData("Max jitter (ms)", maxJitterNanos / 1e6)
+        telemetry.addData("Overruns", overruns)
+        telemetry.addData("Last overrun culprit", lastOverrunCulprit)
+    }
+
+    private companion object {
+        const val TAG = "Scheduler"
+    }
+}
@@ -0,0 +1,12 @@
+package org.firstinspires.ftc.teamcodekt.components.scheduler
+
+/**
+ * A block of code registered through [Scheduler.every] to run once every [divisor] ticks.
+ *
+ * @param task The block of code to run.
+ * @param divisor How many ticks apart each run should be.
+ * @param name An optional name to report the task as.
+ *
+ * @author KG
+ */
+internal class PeriodicTask(val task: Runnable, val divisor: Int, val name: String?)
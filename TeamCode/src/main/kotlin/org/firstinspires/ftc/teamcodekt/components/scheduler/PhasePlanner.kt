@@ -0,0 +1,76 @@
+package org.firstinspires.ftc.teamcodekt.components.scheduler
+
+/**
+ * Staggers multi-rate listeners and tasks so that the ones running at a reduced rate land on as
+ * few of the same ticks as possible, lowering the peak tick time.
+ *
+ * Each item running every `n` ticks is given a phase in `[0, n)`; it then runs on every tick where
+ * `tick % n == phase`. Phases are assigned greedily, most frequent items first, each into the phase
+ * whose ticks are currently the least loaded over the hyperperiod (the LCM of all the divisors,
+ * capped at [MAX_HYPERPERIOD]).
+ *
+ * @author KG
+ *
+ * @see Scheduler.every
+ */
+internal object PhasePlanner {
+    private const val MAX_HYPERPERIOD = 5040
+
+    /**
+     * Assigns a phase to each of the given rate divisors.
+     * @param divisors The rate divisor of each item; `1` means every tick.
+     * @return The phase of each item, at the same index.
+     */
+    fun assignPhases(divisors: IntArray): IntArray {
+        val phases = IntArray(divisors.size)
+
+        var hyperperiod = 1
+        for (d in divisors) {
+            hyperperiod = lcm(hyperperiod, d).coerceAtMost(MAX_HYPERPERIOD)
+        }
+
+        val load = IntArray(hyperperiod)
+
+        for (i in divisors.indices.sortedBy { divisors[it] }) {
+            val d = divisors[i]
+
+            var bestPhase = 0
+            var bestPeak = Int.MAX_VALUE
+            var bestTotal = Int.MAX_VALUE
+
+            for (phase in 0 until d) {
+                var peak = 0
+                var total = 0
+
+                for (t in phase until hyperperiod step d) {
+                    peak = maxOf(peak, load[t])
+                    total += load[t]
+                }
+
+                if (peak < bestPeak || (peak == bestPeak && total < bestTotal)) {
+                    bestPhase = phase
+                    bestPeak = peak
+                    bestTotal = total
+                }
+            }
+
+            for (t in bestPhase until hyperperiod step d) {
+                load[t]++
+            }
+            phases[i] = bestPhase
+        }
+
+        return phases
+    }
+
+    private fun lcm(a: Int, b: Int): Int {
+        var x = a
+        var y = b
+        while (y != 0) {
+            val r = x % y
+            x = y
+            y = r
+        }
+        return (a.toLong() * b / x).coerceAtMost(Int.MAX_VALUE.toLong()).toInt()
+    }
+}
@@ -1,9 +1,12 @@
 package org.firstinspires.ftc.teamcodekt.components.scheduler
 
 import com.qualcomm.robotcore.eventloop.opmode.LinearOpMode
+import com.qualcomm.robotcore.util.RobotLog
 import org.firstinspires.ftc.robotcore.external.Telemetry
 import org.firstinspires.ftc.teamcodekt.components.scheduler.listeners.Listener
+import org.firstinspires.ftc.teamcodekt.components.scheduler.listeners.Timer
 import org.firstinspires.ftc.teamcodekt.util.Condition
+import org.firstinspires.ftc.teamcodekt.util.OpModeTeardown
 
 /**
  * A component that simplifies the process of scheduling actions to be performed at a
@@ -38,10 +41,20 @@ import org.firstinspires.ftc.teamcodekt.util.Condition
  * ```
  *
  * The performance impact of this component is minimal, with [Listeners][Listener] being lazily
- * hooked only when required, and each tick barely encumbering the stack.
+ * hooked only when required, and each tick barely encumbering the stack. Once started, the hooked
+ * listeners are frozen into a [CompiledSchedule] of flat action tables, so a tick performs no
+ * iterator or boxing allocations; the schedule is transparently rebuilt whenever a new listener or
+ * action is hooked.
+ *
+ * Each OpMode run gets its own [SchedulerScope], created lazily on first use and torn down once
+ * the loop exits or the OpMode is stopped, so listeners and timers never carry over into the next
+ * run. Listeners may also be removed early through [Listener.unhook]. Anything that tries to hook
+ * into a scope after it was torn down (e.g. a listener kept in a static field) is ignored and
+ * counted in [leakCount].
  *
  * All tasks are guaranteed to run in the order that they are scheduled. The code blocks run in
- * the following order: `beforeEach` -> `scheduled tasks` -> `block of code provided in start`
+ * the following order: `timers` -> `snapshots` -> `beforeEach` -> `scheduled tasks` ->
+ * `periodic tasks` -> `task chains` -> `block of code provided in start` -> `flushes`
  *
  * Java usage example:
  * ```java
@@ -84,22 +97,78 @@ import org.firstinspires.ftc.teamcodekt.util.Condition
  */
 object Scheduler {
     /**
-     * The [Listeners][Listener] subscribed to this [Scheduler]. Updated on every tick.
+     * The scope of the current OpMode run, or `null` if none has been used yet.
+     */
+    @Volatile
+    private var scope: SchedulerScope? = null
+
+    /**
+     * Tears down the current scope after every OpMode stops, even one that never reached [start].
+     */
+    private val teardown = OpModeTeardown(::reset)
+
+    /**
+     * The [SchedulerScope] of the current OpMode run, creating a new one if the last one was
+     * closed.
+     */
+    @JvmStatic
+    val current: SchedulerScope
+        @Synchronized get() = scope?.takeUnless { it.isClosed }
+            ?: SchedulerScope().also {
+                scope = it
+                teardown.register()
+            }
+
+    /**
+     * The number of times something tried to hook into a scope that had already been torn down,
+     * e.g. a [Listener] or [Timer] kept alive from a previous OpMode run. Counted across the whole
+     * app session.
+     */
+    @JvmStatic
+    var leakCount = 0L
+        private set
+
+    /**
+     * The [SchedulerClock.nanoTime] at which the current tick started.
+     */
+    @JvmStatic
+    val tickStartNanos get() = current.tickStartNanos
+
+    /**
+     * The [SchedulerClock.nanoTime] at which the running scope's current tick started, or `0` while
+     * no scope is ticking. Unlike [tickStartNanos], reading it never takes a lock or creates a
+     * scope, so it's safe to read from anywhere, e.g. from hardware reads outside of the loop.
+     */
+    @JvmStatic
+    @Volatile
+    var activeTickStartNanos = 0L
+        internal set
+
+    /**
+     * The time between the starts of the current and previous ticks, in seconds. This is shared
+     * by every controller updated during a tick, so they all integrate/differentiate over the
+     * same step. `0` on the first tick.
+     */
+    @JvmStatic
+    val dt get() = current.dt
+
+    /**
+     * The number of ticks run since the [Scheduler] was last started.
      */
-    private val listeners = mutableSetOf<Listener>()
+    @JvmStatic
+    val tickCount get() = current.tickCount
 
     /**
-     * A block of code to run before each tick.
+     * Timing statistics for the loop when run through [startFixedRate].
      */
-    private var beforeEach: Runnable? = null
+    @JvmStatic
+    val loopStats get() = current.loopStats
 
     /**
      * Sets a block of code to run before each tick.
      */
     @JvmStatic
-    fun beforeEach(runnable: Runnable) {
-        beforeEach = runnable
-    }
+    fun beforeEach(runnable: Runnable) = current.beforeEach(runnable)
 
     /**
      * Starts the [Scheduler], and runs the program in the given [afterEach] until the [LinearOpMode]
@@ -134,18 +203,50 @@ object Scheduler {
      */
     @JvmStatic
     @JvmOverloads
-    fun start(opmode: LinearOpMode, afterEach: Runnable? = null) {
-        while (opmode.opModeIsActive() && !opmode.isStopRequested) {
-            beforeEach?.run()
-            tick()
-            afterEach?.run()
-        }
-    }
+    fun start(opmode: LinearOpMode, afterEach: Runnable? = null) = current.start(opmode, afterEach)
+
+    /**
+     * Starts the [Scheduler] like [start], but paces the ticks to start every [periodNanos]
+     * nanoseconds instead of running as fast as possible, so that every controller sees a
+     * consistent [dt].
+     *
+     * Each tick is timed; the jitter and overruns are recorded in [loopStats], and each overrun is
+     * logged along with the listener or block of code that took the longest during that tick. An
+     * overrunning tick is not caught up on; the next tick simply starts immediately.
+     *
+     * Java usage example:
+     * ```java
+     * @Override
+     * public void runOpMode() throws InterruptedException {
+     *    // Instantiate listeners...
+     *
+     *    waitForStart();
+     *
+     *    // Ticks at 100Hz
+     *    Scheduler.startFixedRate(this, 10_000_000, () -> {
+     *        updateSomething();
+     *        Scheduler.getLoopStats().addTo(telemetry);
+     *        telemetry.update();
+     *    });
+     * }
+     * ```
+     * @param opmode The [LinearOpMode] to run the [Scheduler] in.
+     * @param periodNanos The target period of each tick, in nanoseconds.
+     * @param afterEach An optional block of code to run every tick, after the listeners have ran.
+     */
+    @JvmStatic
+    @JvmOverloads
+    fun startFixedRate(opmode: LinearOpMode, periodNanos: Long, afterEach: Runnable? = null) =
+        current.startFixedRate(opmode, periodNanos, afterEach)
 
     /**
      * Starts the [Scheduler], and runs the program in the given [afterEach] until the [LinearOpMode]
      * is no longer active. The loop time is then calculated, and send to the [Telemetry] object.
      *
+     * Every listener update, action, periodic task, and the `beforeEach`, task chain, `afterEach`,
+     * and output flush blocks are also timed into nanosecond [LatencyHistogram]s, whose p50/p95/p99/max
+     * are published to FTC Dashboard every few ticks (see [SchedulerProfiler]).
+     *
      * __Note 1:__ this method is for development and optimization purposes only, _and should not
      * be used in final code_.
      *
@@ -182,36 +283,79 @@ object Scheduler {
      */
     @JvmStatic
     @JvmOverloads
-    fun time(opmode: LinearOpMode, telemetry: Telemetry, afterEach: Runnable? = null) {
-        while (opmode.opModeIsActive() && !opmode.isStopRequested) {
-            val startTime = System.currentTimeMillis()
-
-            beforeEach?.run()
-            tick()
-            afterEach?.run()
-
-            val endTime = System.currentTimeMillis()
-            telemetry.addData("Loop time (ms)", endTime - startTime)
-            telemetry.update()
-        }
-    }
+    fun time(opmode: LinearOpMode, telemetry: Telemetry, afterEach: Runnable? = null) =
+        current.time(opmode, telemetry, afterEach)
+
+    /**
+     * Hooks the given [Listener] into the current scope. Normally called by the listener itself
+     * once it has an action subscribed to it.
+     * @param listener The listener to hook.
+     * @return The given [listener].
+     */
+    @JvmStatic
+    fun hookListener(listener: Listener) = current.hookListener(listener)
 
     /**
-     * Updates the listeners and runs their actions if their conditions are met.
+     * Registers a snapshot stage to be run once at the very start of every tick. Registering the
+     * same stage more than once has no effect.
+     * @param snapshot The stage that captures the per-tick state.
      */
-    private fun tick() = listeners.forEach { listener ->
-        listener.update()
-        listener.doActiveActions()
+    @JvmStatic
+    fun hookSnapshot(snapshot: Runnable) = current.hookSnapshot(snapshot)
+
+    /**
+     * Registers a flush stage to be run once at the very end of every tick, after the block of
+     * code provided in [start]. Registering the same stage more than once has no effect. If the
+     * stage is [AutoCloseable], it is closed when the OpMode stops.
+     * @param flush The stage that writes the tick's buffered outputs.
+     */
+    @JvmStatic
+    fun hookFlush(flush: Runnable) = current.hookFlush(flush)
+
+    /**
+     * Registers a block of code to run once every [divisor] ticks, after the listeners. Tasks and
+     * listeners running at a reduced rate are staggered so that they land on as few of the same
+     * ticks as possible.
+     *
+     * Java usage example:
+     * ```java
+     * // Drive and lift run every tick, telemetry every 5th tick,
+     * // and voltage sampling every 20th tick
+     * Scheduler.every(5, telemetry::update);
+     * Scheduler.every(20, this::sampleVoltage);
+     * ```
+     * @param divisor How many ticks apart each run should be.
+     * @param task The block of code to run.
+     */
+    @JvmStatic
+    fun every(divisor: Int, task: Runnable) = current.every(divisor, task)
+
+    /**
+     * Tears down the current scope, dropping every listener, snapshot, task, and timer hooked into
+     * it. This is done automatically once the loop exits or the OpMode is stopped, so this only
+     * needs to be called to throw away listeners hooked before deciding not to use them.
+     */
+    @JvmStatic
+    fun reset() {
+        scope?.close()
     }
 
     /**
-     * Gets the [Listener] with the given [id], or creates and registers one if it doesn't exist.
-     * @param id The unique ID of the [Listener].
-     * @param condition The [Condition] to check.
-     * @return The [Listener] with the given [id] and [condition].
+     * Adds the number of hooked listeners, pending timers, and [leaks][leakCount] to the given
+     * [Telemetry].
      */
     @JvmStatic
-    fun hookListener(listener: Listener) = listener.also {
-        listeners += listener
+    fun addScopeTelemetry(telemetry: Telemetry) {
+        current.addTo(telemetry)
+        telemetry.addData("Scheduler leaks", leakCount)
+    }
+
+    /**
+     * Counts an attempt to hook into a closed scope.
+     */
+    @Synchronized
+    internal fun reportLeak() {
+        leakCount++
+        RobotLog.ww("Scheduler", "Tried to hook into a torn down scope (%d leaks so far)", leakCount)
     }
 }
@@ -0,0 +1,43 @@
+package org.firstinspires.ftc.teamcodekt.components.scheduler
+
+import java.util.function.LongSupplier
+
+/**
+ * The clock the [Scheduler] keeps time by: tick start times, timer expiries, and task chain
+ * delays. Defaults to [System.nanoTime], but can be swapped for a virtual clock so that OpModes can
+ * be run faster than real time (e.g. in a simulation).
+ *
+ * Profiling and loop statistics always use the real [System.nanoTime], since they measure how long
+ * the code actually takes to run.
+ *
+ * @author KG
+ */
+object SchedulerClock {
+    @Volatile
+    private var source: LongSupplier? = null
+
+    /**
+     * Gets the current time, in nanoseconds.
+     */
+    @JvmStatic
+    fun nanoTime() = source?.asLong ?: System.nanoTime()
+
+    /**
+     * Whether time is being kept by a virtual source rather than [System.nanoTime]; anything that
+     * samples on a background thread should sample synchronously instead while it is, since sleeping
+     * threads keep real time.
+     */
+    @JvmStatic
+    val isVirtual get() = source != null
+
+    /**
+     * Keeps time by the given source from now on, or by [System.nanoTime] if `null`.
+     *
+     * _The source should be swapped before the [Scheduler]'s scope is created, since its timing
+     * wheel starts at the time it's created._
+     */
+    @JvmStatic
+    fun use(source: LongSupplier?) {
+        this.source = source
+    }
+}
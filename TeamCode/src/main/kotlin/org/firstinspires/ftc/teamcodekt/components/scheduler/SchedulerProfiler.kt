@@ -0,0 +1,84 @@
+package org.firstinspires.ftc.teamcodekt.components.scheduler
+
+import com.acmerobotics.dashboard.FtcDashboard
+import com.acmerobotics.dashboard.telemetry.TelemetryPacket
+import java.util.IdentityHashMap
+
+/**
+ * Collects a [LatencyHistogram] for every block of code the [Scheduler] runs while started through
+ * [Scheduler.time]: each listener's `update()`, each subscribed action, each periodic task, and the
+ * `beforeEach`, task chain, `afterEach`, and output flush blocks, plus the whole tick.
+ *
+ * Histograms are looked up once, when the [CompiledSchedule] is built, so recording during a tick
+ * never allocates. They're kept by identity across rebuilds, so a listener keeps its history when
+ * new listeners are hooked.
+ *
+ * [publish] sends the p50/p95/p99/max of the whole tick, the fixed blocks, and the
+ * [WORST_SHOWN] slowest listeners and actions (by p99) to FTC Dashboard, in microseconds.
+ *
+ * @author KG
+ *
+ * @see LatencyHistogram
+ * @see Scheduler.time
+ */
+class SchedulerProfiler {
+    private val histograms = IdentityHashMap<Any, LatencyHistogram>()
+
+    val tick = LatencyHistogram("tick")
+    val timersAndSnapshots = LatencyHistogram("timers & snapshots")
+    val beforeEach = LatencyHistogram("beforeEach")
+    val chains = LatencyHistogram("task chains")
+    val afterEach = LatencyHistogram("afterEach")
+    val flush = LatencyHistogram("output flush")
+
+    private val fixed = arrayOf(tick, timersAndSnapshots, beforeEach, chains, afterEach, flush)
+
+    /**
+     * Gets the histogram for the given block of code, creating it if it doesn't exist.
+     * @param key The object identifying the block, e.g. the listener or action itself.
+     * @param name The name to report the block as.
+     */
+    internal fun histogramFor(key: Any, name: String): LatencyHistogram =
+        histograms.getOrPut(key) { LatencyHistogram(name) }
+
+    /**
+     * Sends the current percentiles to FTC Dashboard.
+     */
+    fun publish() {
+        val packet = TelemetryPacket()
+
+        for (histogram in fixed) {
+            put(packet, histogram)
+        }
+
+        histograms.values
+            .sortedByDescending { it.valueAtPercentile(99.0) }
+            .take(WORST_SHOWN)
+            .forEach { put(packet, it) }
+
+        FtcDashboard.getInstance()?.sendTelemetryPacket(packet)
+    }
+
+    /**
+     * Clears every histogram.
+     */
+    fun reset() {
+        fixed.forEach { it.reset() }
+        histograms.values.forEach { it.reset() }
+    }
+
+    private fun put(packet: TelemetryPacket, histogram: LatencyHistogram) {
+        val name = histogram.name
+        packet.put("$name p50 (us)", histogram.valueAtPercentile(50.0) / 1e3)
+        packet.put("$name p95 (us)", histogram.valueAtPercentile(95.0) / 1e3)
+        packet.put("$name p99 (us)", histogram.valueAtPercentile(99.0) / 1e3)
+        packet.put("$name max (us)", histogram.maxNanos / 1e3)
+    }
+
+    companion object {
+        /**
+         * How many of the slowest listeners and actions [publish] reports.
+         */
+        const val WORST_SHOWN = 8
+    }
+}
@@ -0,0 +1,523 @@
+package org.firstinspires.ftc.teamcodekt.components.scheduler
+
+import com.qualcomm.robotcore.eventloop.opmode.LinearOpMode
+import org.firstinspires.ftc.robotcore.external.Telemetry
+import org.firstinspires.ftc.teamcodekt.components.scheduler.listeners.Listener
+import org.firstinspires.ftc.teamcodekt.components.scheduler.listeners.Timer
+import org.firstinspires.ftc.teamcodekt.components.scheduler.taskchains.ChainRoutine
+import java.util.IdentityHashMap
+
+/**
+ * The state of a single run of the [Scheduler]: its hooked [Listeners][Listener], snapshots,
+ * periodic tasks, [Timer] wheel, and shared clock.
+ *
+ * A new scope is created lazily for each OpMode run, and is [closed][close] once the loop exits
+ * or the OpMode is stopped, dropping everything hooked into it. This keeps listeners and timers
+ * from one run from accumulating into (and slowing down) the next.
+ *
+ * Hooking into a scope is thread safe, so components may be built concurrently during init (see
+ * `InitOrchestrator`); everything else must happen on the thread running the loop.
+ *
+ * This class is normally used through the static [Scheduler] facade, which always forwards to the
+ * [current][Scheduler.current] scope.
+ *
+ * @author KG
+ *
+ * @see Scheduler
+ */
+class SchedulerScope internal constructor() {
+    /**
+     * The [Listeners][Listener] hooked into this scope. Updated on every tick.
+     */
+    private val listeners = mutableSetOf<Listener>()
+
+    /**
+     * The snapshot stages (e.g. a `GamepadSnapshot`) run once at the start of every tick, before
+     * anything else, so that all listeners read from the same consistent per-tick state.
+     */
+    private val snapshots = mutableSetOf<Runnable>()
+
+    /**
+     * The flush stages (e.g. an `OutputStage`) run once at the very end of every tick, after
+     * everything else, so that each output is written to the hardware at most once per tick.
+     */
+    private val flushes = mutableSetOf<Runnable>()
+
+    /**
+     * The blocks of code registered through [every] to run at a reduced rate.
+     */
+    private val periodicTasks = mutableListOf<PeriodicTask>()
+
+    /**
+     * The [ChainRoutines][ChainRoutine] launched in this scope, stepped once per tick after the
+     * listeners and periodic tasks.
+     */
+    private val chains = ArrayList<ChainRoutine>()
+
+    /**
+     * The [ChainRoutine] currently holding each reserved subsystem.
+     */
+    private val owners = IdentityHashMap<Any, ChainRoutine>()
+
+    /**
+     * The wheel on which [Timers][Timer] register their expiries. Advanced once at the start of
+     * every tick.
+     */
+    internal val timingWheel = TimingWheel(SchedulerClock.nanoTime())
+
+    /**
+     * The [listeners] frozen into flat action tables, or `null` if they have changed since the
+     * last compilation.
+     */
+    private var compiled: CompiledSchedule? = null
+
+    /**
+     * A block of code to run before each tick.
+     */
+    private var beforeEach: Runnable? = null
+
+    /**
+     * Whether or not this scope has been torn down. A closed scope can no longer be hooked into.
+     */
+    @Volatile
+    var isClosed = false
+        private set
+
+    /**
+     * The [SchedulerClock.nanoTime] at which the current tick started.
+     */
+    var tickStartNanos = 0L
+        private set
+
+    /**
+     * The time between the starts of the current and previous ticks, in seconds. `0` on the
+     * first tick.
+     */
+    var dt = 0.0
+        private set
+
+    private var isFirstTick = true
+
+    /**
+     * The number of ticks run since this scope was started.
+     */
+    var tickCount = 0L
+        private set
+
+    /**
+     * Timing statistics for the loop when run through [startFixedRate].
+     */
+    val loopStats = LoopTimingStats()
+
+    /**
+     * The per-block latency histograms, collected while running through [time]; `null` otherwise.
+     */
+    var profiler: SchedulerProfiler? = null
+        private set
+
+    /**
+     * The block of code that took the longest during the last timed tick, and how long it took.
+     */
+    private var slowestBlock = ""
+    private var slowestBlockNanos = 0L
+
+    /**
+     * The number of [Listeners][Listener] currently hooked into this scope.
+     */
+    val listenerCount get() = listeners.size
+
+    /**
+     * The number of [Timers][Timer] currently waiting to expire.
+     */
+    val pendingTimerCount get() = timingWheel.size
+
+    /**
+     * @see Scheduler.beforeEach
+     */
+    fun beforeEach(runnable: Runnable) {
+        beforeEach = runnable
+    }
+
+    /**
+     * Runs this scope until the [LinearOpMode] is no longer active, then [closes][close] it.
+     * @see Scheduler.start
+     */
+    fun start(opmode: LinearOpMode, afterEach: Runnable?) = runAndClose {
+        compile()
+        isFirstTick = true
+
+        while (opmode.opModeIsActive() && !opmode.isStopRequested) {
+            tick(afterEach)
+        }
+    }
+
+    /**
+     * Runs this scope at a fixed rate until the [LinearOpMode] is no longer active, then
+     * [closes][close] it.
+     * @see Scheduler.startFixedRate
+     */
+    fun startFixedRate(opmode: LinearOpMode, periodNanos: Long, afterEach: Runnable?) = runAndClose {
+        compile()
+        isFirstTick = true
+        loopStats.reset(periodNanos)
+
+        var scheduledStart = System.nanoTime()
+
+        while (opmode.opModeIsActive() && !opmode.isStopRequested) {
+            loopStats.recordTick(System.nanoTime() - scheduledStart)
+
+            tickTimed(afterEach)
+
+            val endTime = System.nanoTime()
+            scheduledStart += periodNanos
+
+            if (endTime > scheduledStart) {
+                loopStats.recordOverrun(endTime - scheduledStart, slowestBlock, slowestBlockNanos)
+                scheduledStart = endTime
+            } else {
+                waitUntil(opmode, scheduledStart)
+            }
+        }
+    }
+
+    /**
+     * Runs this scope while profiling every block of code until the [LinearOpMode] is no longer
+     * active, then [closes][close] it.
+     * @see Scheduler.time
+     */
+    fun time(opmode: LinearOpMode, telemetry: Telemetry, afterEach: Runnable?) = runAndClose {
+        val profiler = SchedulerProfiler()
+        this.profiler = profiler
+
+        compile()
+        isFirstTick = true
+
+        while (opmode.opModeIsActive() && !opmode.isStopRequested) {
+            val startTime = System.nanoTime()
+
+            tickProfiled(profiler, afterEach)
+
+            val elapsed = System.nanoTime() - startTime
+            profiler.tick.record(elapsed)
+
+            telemetry.addData("Loop time (ms)", elapsed / 1e6)
+            telemetry.update()
+
+            if (tickCount % PUBLISH_EVERY_TICKS == 0L) {
+                profiler.publish()
+            }
+        }
+    }
+
+    /**
+     * Hooks the given [Listener] into this scope.
+     * @see Scheduler.hookListener
+     */
+    @Synchronized
+    fun hookListener(listener: Listener) = listener.also {
+        listeners += listener
+        compiled = null
+    }
+
+    /**
+     * Removes the given [Listener] from this scope, if it was hooked.
+     * @param listener The listener to remove.
+     */
+    @Synchronized
+    fun unhookListener(listener: Listener) {
+        if (listeners.remove(listener)) {
+            compiled = null
+        }
+    }
+
+    /**
+     * @see Scheduler.hookSnapshot
+     */
+    @Synchronized
+    fun hookSnapshot(snapshot: Runnable) {
+        if (snapshots.add(snapshot)) {
+            compiled = null
+        }
+    }
+
+    /**
+     * @see Scheduler.hookFlush
+     */
+    @Synchronized
+    fun hookFlush(flush: Runnable) {
+        if (flushes.add(flush)) {
+            compiled = null
+        }
+    }
+
+    /**
+     * @see Scheduler.every
+     */
+    @Synchronized
+    fun every(divisor: Int, task: Runnable) {
+        require(divisor >= 1) { "Rate divisor must be at least 1" }
+        periodicTasks += PeriodicTask(task, divisor, null)
+        compiled = null
+    }
+
+    /**
+     * Adds the given [ChainRoutine] to the routines stepped on every tick, if it isn't already.
+     */
+    internal fun hookChain(routine: ChainRoutine) {
+        if (!routine.isHooked) {
+            routine.isHooked = true
+            chains += routine
+        }
+    }
+
+    /**
+     * Hands each of the given subsystems over to the given [ChainRoutine], preempting the routine
+     * that held it before, if any.
+     */
+    internal fun reserve(routine: ChainRoutine, requirements: Array<out Any>) {
+        for (subsystem in requirements) {
+            val owner = owners.put(subsystem, routine)
+
+            if (owner != null && owner !== routine) {
+                owner.preempt()
+            }
+        }
+    }
+
+    /**
+     * Frees each of the given subsystems still held by the given [ChainRoutine].
+     */
+    internal fun release(routine: ChainRoutine, requirements: Array<out Any>) {
+        for (subsystem in requirements) {
+            if (owners[subsystem] === routine) {
+                owners.remove(subsystem)
+            }
+        }
+    }
+
+    /**
+     * Discards the current [CompiledSchedule] so it is rebuilt on the next tick.
+     */
+    internal fun invalidate() {
+        compiled = null
+    }
+
+    /**
+     * Tears down this scope, dropping every listener, snapshot, task, and timer hooked into it, and
+     * closing every snapshot and flush stage that is [AutoCloseable]. Anything that later tries to
+     * hook into this scope is counted as a [leak][Scheduler.leakCount] and ignored. Closing an
+     * already closed scope has no effect.
+     */
+    fun close() {
+        if (isClosed) {
+            return
+        }
+        isClosed = true
+        TickClock.isTicking = false
+        Scheduler.activeTickStartNanos = 0L
+
+        listeners.clear()
+        snapshots.forEach { (it as? AutoCloseable)?.close() }
+        snapshots.clear()
+        flushes.forEach { (it as? AutoCloseable)?.close() }
+        flushes.clear()
+        periodicTasks.clear()
+        timingWheel.clear()
+        beforeEach = null
+
+        for (i in chains.indices) {
+            chains[i].abandon()
+        }
+        chains.clear()
+        owners.clear()
+        compiled = null
+    }
+
+    /**
+     * Adds the number of hooked listeners and pending timers to the given [Telemetry].
+     */
+    fun addTo(telemetry: Telemetry) {
+        telemetry.addData("Scheduler listeners", listenerCount)
+        telemetry.addData("Scheduler pending timers", pendingTimerCount)
+    }
+
+    private inline fun runAndClose(loop: () -> Unit) {
+        try {
+            loop()
+        } finally {
+            close()
+        }
+    }
+
+    /**
+     * Expires any due timers, takes the snapshots, runs [beforeEach], updates the listeners and
+     * runs their actions if their conditions are met, steps the task chains, runs the given
+     * [afterEach], then flushes the outputs.
+     */
+    private fun tick(afterEach: Runnable?) {
+        val schedule = beginTick()
+
+        beforeEach?.run()
+        schedule.tick(tickCount)
+        stepChains()
+        afterEach?.run()
+        schedule.flush()
+    }
+
+    /**
+     * Same as [tick], but also times each block of code, recording the slowest one.
+     */
+    private fun tickTimed(afterEach: Runnable?) {
+        val t0 = System.nanoTime()
+        val schedule = beginTick()
+        val t1 = System.nanoTime()
+        beforeEach?.run()
+        val t2 = System.nanoTime()
+        schedule.tickTimed(tickCount)
+        val t3 = System.nanoTime()
+        stepChains()
+        val t4 = System.nanoTime()
+        afterEach?.run()
+        val t5 = System.nanoTime()
+        schedule.flush()
+        val t6 = System.nanoTime()
+
+        slowestBlock = "timers & snapshots"
+        slowestBlockNanos = t1 - t0
+
+        if (t2 - t1 > slowestBlockNanos) {
+            slowestBlock = "beforeEach"
+            slowestBlockNanos = t2 - t1
+        }
+
+        if (schedule.slowestEntryNanos > slowestBlockNanos) {
+            slowestBlock = schedule.entryName(schedule.slowestEntry)
+            slowestBlockNanos = schedule.slowestEntryNanos
+        }
+
+        if (t4 - t3 > slowestBlockNanos) {
+            slowestBlock = "task chains"
+            slowestBlockNanos = t4 - t3
+        }
+
+        if (t5 - t4 > slowestBlockNanos) {
+            slowestBlock = "afterEach"
+            slowestBlockNanos = t5 - t4
+        }
+
+        if (t6 - t5 > slowestBlockNanos) {
+            slowestBlock = "output flush"
+            slowestBlockNanos = t6 - t5
+        }
+    }
+
+    /**
+     * Same as [tick], but also records how long each block of code took into the given
+     * [SchedulerProfiler].
+     */
+    private fun tickProfiled(profiler: SchedulerProfiler, afterEach: Runnable?) {
+        val t0 = System.nanoTime()
+        val schedule = beginTick()
+        val t1 = System.nanoTime()
+        beforeEach?.run()
+        val t2 = System.nanoTime()
+        schedule.tickProfiled(tickCount)
+        val t3 = System.nanoTime()
+        stepChains()
+        val t4 = System.nanoTime()
+        afterEach?.run()
+        val t5 = System.nanoTime()
+        schedule.flush()
+        val t6 = System.nanoTime()
+
+        profiler.timersAndSnapshots.record(t1 - t0)
+        profiler.beforeEach.record(t2 - t1)
+        profiler.chains.record(t4 - t3)
+        profiler.afterEach.record(t5 - t4)
+        profiler.flush.record(t6 - t5)
+    }
+
+    /**
+     * Updates the shared clock, expires any due timers, and takes the snapshots.
+     * @return The [CompiledSchedule] to tick.
+     */
+    private fun beginTick(): CompiledSchedule {
+        val now = SchedulerClock.nanoTime()
+        dt = if (isFirstTick) 0.0 else (now - tickStartNanos) / 1e9
+        tickStartNanos = now
+        Scheduler.activeTickStartNanos = now
+        tickCount = if (isFirstTick) 0 else tickCount + 1
+        isFirstTick = false
+
+        TickClock.serial++
+        TickClock.isTicking = true
+
+        val schedule = compiled ?: compile()
+
+        timingWheel.advance(now)
+        schedule.takeSnapshots()
+        return schedule
+    }
+
+    /**
+     * Steps each active [ChainRoutine], including any launched during this step, then drops the
+     * ones that have finished.
+     */
+    private fun stepChains() {
+        var i = 0
+        while (i < chains.size) {
+            chains[i].step(tickStartNanos)
+            i++
+        }
+
+        var kept = 0
+        for (j in chains.indices) {
+            val routine = chains[j]
+
+            if (routine.isActive) {
+                chains[kept++] = routine
+            } else {
+                routine.isHooked = false
+            }
+        }
+
+        while (chains.size > kept) {
+            chains.removeAt(chains.size - 1)
+        }
+    }
+
+    /**
+     * Sleeps until shortly before the given deadline, then yields until it is reached.
+     */
+    private fun waitUntil(opmode: LinearOpMode, deadline: Long) {
+        val sleepMs = (deadline - System.nanoTime() - SPIN_NANOS) / 1_000_000
+
+        if (sleepMs > 0) {
+            opmode.sleep(sleepMs)
+        }
+
+        while (System.nanoTime() < deadline && !opmode.isStopRequested) {
+            Thread.yield()
+        }
+    }
+
+    /**
+     * Freezes the currently hooked [listeners] into a new [CompiledSchedule].
+     */
+    private fun compile() = CompiledSchedule(snapshots, flushes, listeners, periodicTasks).also {
+        profiler?.let(it::attachProfiler)
+        compiled = it
+    }
+
+    private companion object {
+        /**
+         * How long before a fixed-rate deadline to stop sleeping and start yielding, in nanoseconds.
+         */
+        const val SPIN_NANOS = 1_000_000L
+
+        /**
+         * How many ticks apart the [profiler] is published to FTC Dashboard.
+         */
+        const val PUBLISH_EVERY_TICKS = 50L
+    }
+}
@@ -1,6 +1,10 @@
 package org.firstinspires.ftc.teamcodekt.components.scheduler
 
+import org.firstinspires.ftc.teamcodekt.components.scheduler.SignalTrigger.Companion.FALLING_EDGE_ORDINAL
+import org.firstinspires.ftc.teamcodekt.components.scheduler.SignalTrigger.Companion.IS_HIGH_ORDINAL
+import org.firstinspires.ftc.teamcodekt.components.scheduler.SignalTrigger.Companion.RISING_EDGE_ORDINAL
 import org.firstinspires.ftc.teamcodekt.util.Condition
+import java.util.function.BooleanSupplier
 
 /**
  * Evaluates a condition, and checks if the state of the condition is on the rising edge, falling
@@ -11,9 +15,13 @@ import org.firstinspires.ftc.teamcodekt.util.Condition
  * @author KG
  *
  * @see Condition
+ * @see ConditionNode
  * @see SignalTrigger
  */
-class SignalEdgeDetector(val condition: Condition) {
+class SignalEdgeDetector(private val condition: BooleanSupplier) {
+
+    constructor(condition: Condition) : this(ConditionNode.wrap(condition))
+
     /**
      * The current state of the condition
      */
@@ -29,7 +37,7 @@ class SignalEdgeDetector(val condition: Condition) {
      */
     fun update() {
         lastState = state
-        state = condition()
+        state = condition.getAsBoolean()
     }
 
     /**
@@ -55,4 +63,17 @@ class SignalEdgeDetector(val condition: Condition) {
      * @return True if the condition is false, false otherwise.
      */
     fun isLow() = !state
+
+    /**
+     * Checks if the condition currently matches the given [SignalTrigger], referenced by its
+     * [ordinal][SignalTrigger.ordinal] so that it may be called from primitive action tables.
+     * @param trigger The ordinal of the [SignalTrigger] to check against.
+     * @return True if the condition matches the trigger, false otherwise.
+     */
+    fun isTriggered(trigger: Int) = when (trigger) {
+        RISING_EDGE_ORDINAL  -> state && !lastState
+        FALLING_EDGE_ORDINAL -> !state && lastState
+        IS_HIGH_ORDINAL      -> state
+        else                 -> !state
+    }
 }
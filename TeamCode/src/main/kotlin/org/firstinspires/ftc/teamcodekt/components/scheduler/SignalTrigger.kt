@@ -0,0 +1,40 @@
+package org.firstinspires.ftc.teamcodekt.components.scheduler
+
+/**
+ * The state of a signal on which a subscribed action may be performed.
+ *
+ * The [ordinal] of each trigger is used as a primitive slot in the [CompiledSchedule], so the order
+ * of these entries must line up with the ordinal constants below.
+ *
+ * @author KG
+ *
+ * @see SignalEdgeDetector
+ */
+enum class SignalTrigger {
+    /**
+     * The condition changed from false to true.
+     */
+    RISING_EDGE,
+
+    /**
+     * The condition changed from true to false.
+     */
+    FALLING_EDGE,
+
+    /**
+     * The condition is true.
+     */
+    IS_HIGH,
+
+    /**
+     * The condition is false.
+     */
+    IS_LOW;
+
+    internal companion object {
+        const val RISING_EDGE_ORDINAL = 0
+        const val FALLING_EDGE_ORDINAL = 1
+        const val IS_HIGH_ORDINAL = 2
+        const val IS_LOW_ORDINAL = 3
+    }
+}
@@ -0,0 +1,203 @@
+package org.firstinspires.ftc.teamcodekt.components.scheduler
+
+/**
+ * A hierarchical timing wheel keyed on [SchedulerClock.nanoTime], used by the [Scheduler] to expire
+ * [Timers][org.firstinspires.ftc.teamcodekt.components.scheduler.listeners.Timer] without each one
+ * polling the clock on every tick.
+ *
+ * The wheel has [LEVELS] levels of [SLOTS] slots each; a level-0 slot spans [TICK_NANOS], and each
+ * level above spans [SLOTS] times the one below (~64ms, ~4s, ~4.5min). Entries are cascaded down a
+ * level as the wheel reaches their slot, and are only expired once their exact nanosecond deadline
+ * has passed, so the slot width only affects bookkeeping, not timing resolution.
+ *
+ * Entries are intrusive linked-list nodes, so scheduling and cancelling never allocate.
+ *
+ * @param startNanos The time to start the wheel at.
+ *
+ * @author KG
+ *
+ * @see Scheduler
+ */
+class TimingWheel(startNanos: Long) {
+    /**
+     * An entry that may be scheduled to expire on a [TimingWheel].
+     */
+    abstract class Entry {
+        internal var deadline = 0L
+        internal var bucket = -1
+        internal var prev: Entry? = null
+        internal var next: Entry? = null
+
+        /**
+         * Whether or not this entry is currently waiting to expire.
+         */
+        val isScheduled get() = bucket >= 0
+
+        /**
+         * Called from [TimingWheel.advance] once the deadline of this entry has passed.
+         */
+        abstract fun onExpire()
+    }
+
+    private val buckets = arrayOfNulls<Entry>(LEVELS * SLOTS)
+
+    private var currentTick = startNanos / TICK_NANOS
+
+    /**
+     * The number of entries currently scheduled.
+     */
+    var size = 0
+        private set
+
+    /**
+     * Schedules the given entry to expire at the given time, rescheduling it if it already was.
+     * @param entry The entry to schedule.
+     * @param deadline The [SchedulerClock.nanoTime] at which the entry should expire.
+     */
+    fun schedule(entry: Entry, deadline: Long) {
+        cancel(entry)
+        entry.deadline = deadline
+        insert(entry)
+        size++
+    }
+
+    /**
+     * Removes the given entry from the wheel, if it was scheduled.
+     * @param entry The entry to cancel.
+     */
+    fun cancel(entry: Entry) {
+        if (entry.isScheduled) {
+            unlink(entry)
+            size--
+        }
+    }
+
+    /**
+     * Removes every entry from the wheel without expiring any of them.
+     */
+    fun clear() {
+        for (i in buckets.indices) {
+            var entry = buckets[i]
+            buckets[i] = null
+
+            while (entry != null) {
+                val next = entry.next
+                entry.prev = null
+                entry.next = null
+                entry.bucket = -1
+                entry = next
+            }
+        }
+        size = 0
+    }
+
+    /**
+     * Advances the wheel up to the given time, expiring every entry whose deadline has passed.
+     * @param now The current [SchedulerClock.nanoTime].
+     */
+    fun advance(now: Long) {
+        val target = now / TICK_NANOS
+
+        if (size == 0) {
+            currentTick = maxOf(currentTick, target)
+            return
+        }
+
+        while (true) {
+            expireSlot((currentTick and SLOT_MASK).toInt(), now)
+
+            if (currentTick >= target) {
+                break
+            }
+
+            currentTick++
+            cascade()
+        }
+    }
+
+    private fun expireSlot(slot: Int, now: Long) {
+        var entry = buckets[slot]
+
+        while (entry != null) {
+            val next = entry.next
+
+            if (entry.deadline <= now) {
+                unlink(entry)
+                size--
+                entry.onExpire()
+            }
+            entry = next
+        }
+    }
+
+    /**
+     * Moves the entries of every higher-level slot that the wheel has just reached down a level.
+     */
+    private fun cascade() {
+        for (level in 1 until LEVELS) {
+            val shift = level * SLOT_BITS
+
+            if (currentTick and ((1L shl shift) - 1) != 0L) {
+                return
+            }
+
+            val bucket = level * SLOTS + ((currentTick shr shift) and SLOT_MASK).toInt()
+            var entry = buckets[bucket]
+            buckets[bucket] = null
+
+            while (entry != null) {
+                val next = entry.next
+                entry.prev = null
+                entry.next = null
+                insert(entry)
+                entry = next
+            }
+        }
+    }
+
+    private fun insert(entry: Entry) {
+        val expiryTick = maxOf(entry.deadline / TICK_NANOS, currentTick)
+
+        var level = 0
+        while (level < LEVELS - 1 && expiryTick shr ((level + 1) * SLOT_BITS) != currentTick shr ((level + 1) * SLOT_BITS)) {
+            level++
+        }
+
+        val bucket = level * SLOTS + ((expiryTick shr (level * SLOT_BITS)) and SLOT_MASK).toInt()
+
+        val head = buckets[bucket]
+        entry.prev = null
+        entry.next = head
+        head?.prev = entry
+        buckets[bucket] = entry
+        entry.bucket = bucket
+    }
+
+    private fun unlink(entry: Entry) {
+        val prev = entry.prev
+        val next = entry.next
+
+        if (prev != null) {
+            prev.next = next
+        } else {
+            buckets[entry.bucket] = next
+        }
+        next?.prev = prev
+
+        entry.prev = null
+        entry.next = null
+        entry.bucket = -1
+    }
+
+    companion object {
+        /**
+         * The span of a single level-0 slot, in nanoseconds.
+         */
+        const val TICK_NANOS = 1_000_000L
+
+        private const val SLOT_BITS = 6
+        private const val SLOTS = 1 shl SLOT_BITS
+        private const val SLOT_MASK = SLOTS - 1L
+        private const val LEVELS = 4
+    }
+}
@@ -3,12 +3,15 @@
 package org.firstinspires.ftc.teamcodekt.components.scheduler.listeners
 
 import com.qualcomm.robotcore.hardware.Gamepad
-import kotlin.math.abs
+import org.firstinspires.ftc.teamcodekt.components.scheduler.Scheduler
 
 /**
  * A wrapper around the base [Gamepad] class that can create [Listeners][Listener] for each button.
  * Listeners are only hooked when it's usage is required.
  *
+ * Every listener reads from a single [GamepadSnapshot] taken once per tick, so binding many
+ * buttons costs one read of the gamepad instead of dozens of lambda calls.
+ *
  * Java usage example:
  * ```java
  * @Override
@@ -49,6 +52,17 @@ import kotlin.math.abs
  * @see Listener
  */
 class GamepadEx2(val gamepad: Gamepad) {
+    /**
+     * The per-tick snapshot of the [gamepad] that all of this wrapper's listeners read from.
+     */
+    val snapshot = GamepadSnapshot(gamepad)
+
+    init {
+        // Hooked up front, since listeners composed from this gamepad's (through and, or, etc.)
+        // read the snapshot without ever hooking the SnapshotListeners themselves
+        Scheduler.hookSnapshot(snapshot)
+    }
+
     /**
      * Allows client to perform an action when the gamepad's 'a' button's state is mutated.
      * ```java
@@ -56,7 +70,7 @@ class GamepadEx2(val gamepad: Gamepad) {
      * gamepad_x1.a.onRise(this::doSomething)
      */
     @JvmField
-    val a = Listener(gamepad::a)
+    val a = SnapshotListener(snapshot, GamepadSnapshot.A)
 
     /**
      * Allows client to perform an action when the gamepad's 'b' button's state is mutated.
@@ -65,7 +79,7 @@ class GamepadEx2(val gamepad: Gamepad) {
      * gamepad_x1.b.onHigh(this::doSomething)
      */
     @JvmField
-    val b = Listener(gamepad::b)
+    val b = SnapshotListener(snapshot, GamepadSnapshot.B)
 
     /**
      * Allows client to perform an action when the gamepad's 'x' button's state is mutated.
@@ -74,7 +88,7 @@ class GamepadEx2(val gamepad: Gamepad) {
      * gamepad_x1.x.onFall(this::doSomething)
      */
     @JvmField
-    val x = Listener(gamepad::x)
+    val x = SnapshotListener(snapshot, GamepadSnapshot.X)
 
     /**
      * Allows client to perform an action when the gamepad's 'y' button's state is mutated.
@@ -83,7 +97,7 @@ class GamepadEx2(val gamepad: Gamepad) {
      * gamepad_x1.y.onLow(this::doSomething)
      */
     @JvmField
-    val y = Listener(gamepad::y)
+    val y = SnapshotListener(snapshot, GamepadSnapshot.Y)
 
     /**
      * Allows client to perform an action when the gamepad's 'dpad_up' button's state is mutated.
@@ -92,7 +106,7 @@ class GamepadEx2(val gamepad: Gamepad) {
      * gamepad_x1.dpad_up.onRise(this::doSomething)
      */
     @JvmField
-    val dpad_up = Listener(gamepad::dpad_up)
+    val dpad_up = SnapshotListener(snapshot, GamepadSnapshot.DPAD_UP)
 
     /**
      * Allows client to perform an action when the gamepad's 'dpad_down' button's state is mutated.
@@ -101,7 +115,7 @@ class GamepadEx2(val gamepad: Gamepad) {
      * gamepad_x1.dpad_down.onHigh(this::doSomething)
      */
     @JvmField
-    val dpad_down = Listener(gamepad::dpad_down)
+    val dpad_down = SnapshotListener(snapshot, GamepadSnapshot.DPAD_DOWN)
 
     /**
      * Allows client to perform an action when the gamepad's 'dpad_left' button's state is mutated.
@@ -110,7 +124,7 @@ class GamepadEx2(val gamepad: Gamepad) {
      * gamepad_x1.dpad_left.onFall(this::doSomething)
      */
     @JvmField
-    val dpad_left = Listener(gamepad::dpad_left)
+    val dpad_left = SnapshotListener(snapshot, GamepadSnapshot.DPAD_LEFT)
 
     /**
      * Allows client to perform an action when the gamepad's 'dpad_right' button's state is mutated.
@@ -119,7 +133,7 @@ class GamepadEx2(val gamepad: Gamepad) {
      * gamepad_x1.dpad_right.onLow(this::doSomething)
      */
     @JvmField
-    val dpad_right = Listener(gamepad::dpad_right)
+    val dpad_right = SnapshotListener(snapshot, GamepadSnapshot.DPAD_RIGHT)
 
 
     /**
@@ -129,7 +143,7 @@ class GamepadEx2(val gamepad: Gamepad) {
      * gamepad_x1.left_bumper.onRise(this::doSomething)
      */
     @JvmField
-    val left_bumper = Listener(gamepad::left_bumper)
+    val left_bumper = SnapshotListener(snapshot, GamepadSnapshot.LEFT_BUMPER)
 
     /**
      * Allows client to perform an action when the gamepad's 'right_bumper' button's state is mutated.
@@ -138,7 +152,7 @@ class GamepadEx2(val gamepad: Gamepad) {
      * gamepad_x1.right_bumper.onHigh(this::doSomething)
      */
     @JvmField
-    val right_bumper = Listener(gamepad::right_bumper)
+    val right_bumper = SnapshotListener(snapshot, GamepadSnapshot.RIGHT_BUMPER)
 
 
     /**
@@ -159,7 +173,7 @@ class GamepadEx2(val gamepad: Gamepad) {
      * @param deadzone The minimum value that the left_stick_x must be above to trigger the event.
      */
     fun left_stick_x(deadzone: Double): Listener {
-        return Listener { abs(gamepad.left_stick_x) > deadzone }
+        return analogListener(GamepadSnapshot.LEFT_STICK_X, deadzone)
     }
 
 
@@ -181,7 +195,7 @@ class GamepadEx2(val gamepad: Gamepad) {
      * @param deadzone The minimum value that the left_stick_y must be above to trigger the event.
      */
     fun left_stick_y(deadzone: Double): Listener {
-        return Listener { abs(gamepad.left_stick_y) > deadzone }
+        return analogListener(GamepadSnapshot.LEFT_STICK_Y, deadzone)
     }
 
 
@@ -203,7 +217,7 @@ class GamepadEx2(val gamepad: Gamepad) {
      * @param deadzone The minimum value that the right_stick_x must be above to trigger the event.
      */
     fun right_stick_x(deadzone: Double): Listener {
-        return Listener { abs(gamepad.right_stick_x) > deadzone }
+        return analogListener(GamepadSnapshot.RIGHT_STICK_X, deadzone)
     }
 
 
@@ -225,7 +239,7 @@ class GamepadEx2(val gamepad: Gamepad) {
      * @param deadzone The minimum value that the right_stick_y must be above to trigger the event.
      */
     fun right_stick_y(deadzone: Double): Listener {
-        return Listener { abs(gamepad.right_stick_y) > deadzone }
+        return analogListener(GamepadSnapshot.RIGHT_STICK_Y, deadzone)
     }
 
 
@@ -247,7 +261,7 @@ class GamepadEx2(val gamepad: Gamepad) {
      * @param deadzone The minimum value that the left_trigger must be above to trigger the event.
      */
     fun left_trigger(deadzone: Double): Listener {
-        return Listener { gamepad.left_trigger > deadzone }
+        return analogListener(GamepadSnapshot.LEFT_TRIGGER, deadzone)
     }
 
 
@@ -269,7 +283,7 @@ class GamepadEx2(val gamepad: Gamepad) {
      * @param deadzone The minimum value that the right_trigger must be above to trigger the event.
      */
     fun right_trigger(deadzone: Double): Listener {
-        return Listener { gamepad.right_trigger > deadzone }
+        return analogListener(GamepadSnapshot.RIGHT_TRIGGER, deadzone)
     }
 
 
@@ -291,11 +305,10 @@ class GamepadEx2(val gamepad: Gamepad) {
      * @param deadzone The minimum value that the joysticks must be above to trigger the event.
      */
     fun joysticks(deadzone: Double): Listener {
-        return Listener {
-            abs(gamepad.left_stick_y)  > deadzone ||
-            abs(gamepad.left_stick_x)  > deadzone ||
-            abs(gamepad.right_stick_y) > deadzone ||
-            abs(gamepad.right_stick_x) > deadzone
-        }
+        return analogListener(GamepadSnapshot.JOYSTICKS, deadzone)
+    }
+
+    private fun analogListener(axis: Int, deadzone: Double): Listener {
+        return SnapshotListener(snapshot, snapshot.analogChannel(axis, deadzone))
     }
 }
@@ -0,0 +1,151 @@
+package org.firstinspires.ftc.teamcodekt.components.scheduler.listeners
+
+import com.qualcomm.robotcore.hardware.Gamepad
+import org.firstinspires.ftc.teamcodekt.components.scheduler.Scheduler
+import kotlin.math.abs
+
+/**
+ * Packs the state of every button of a [Gamepad], plus any thresholded stick/trigger channels,
+ * into a single `long` once per tick. The rising and falling edges of every channel are then
+ * derived with a single XOR/AND, so each bound button costs a bit test rather than a property
+ * read and a lambda call.
+ *
+ * Hooked as a snapshot stage in the [Scheduler] by [GamepadEx2] as soon as it's created, so that
+ * every listener reading it, composed or not, sees the current tick's state.
+ *
+ * @param gamepad The gamepad to snapshot.
+ *
+ * @author KG
+ *
+ * @see GamepadEx2
+ * @see SnapshotListener
+ */
+class GamepadSnapshot(private val gamepad: Gamepad) : Runnable {
+    /**
+     * The bits of the channels that are currently high.
+     */
+    var state = 0L
+        private set
+
+    /**
+     * The bits of the channels that went from low to high on this tick.
+     */
+    var rising = 0L
+        private set
+
+    /**
+     * The bits of the channels that went from high to low on this tick.
+     */
+    var falling = 0L
+        private set
+
+    /**
+     * The axis of each registered analog channel, indexed by `bit - FIRST_ANALOG_BIT`.
+     */
+    private val channelAxes = IntArray(MAX_ANALOG_CHANNELS)
+
+    /**
+     * The threshold of each registered analog channel, indexed by `bit - FIRST_ANALOG_BIT`.
+     */
+    private val channelThresholds = DoubleArray(MAX_ANALOG_CHANNELS)
+
+    private var channelCount = 0
+
+    /**
+     * Reads the gamepad and updates the [state], [rising], and [falling] bits.
+     */
+    override fun run() {
+        val lastState = state
+        var s = 0L
+
+        if (gamepad.a)            s = s or (1L shl A)
+        if (gamepad.b)            s = s or (1L shl B)
+        if (gamepad.x)            s = s or (1L shl X)
+        if (gamepad.y)            s = s or (1L shl Y)
+        if (gamepad.dpad_up)      s = s or (1L shl DPAD_UP)
+        if (gamepad.dpad_down)    s = s or (1L shl DPAD_DOWN)
+        if (gamepad.dpad_left)    s = s or (1L shl DPAD_LEFT)
+        if (gamepad.dpad_right)   s = s or (1L shl DPAD_RIGHT)
+        if (gamepad.left_bumper)  s = s or (1L shl LEFT_BUMPER)
+        if (gamepad.right_bumper) s = s or (1L shl RIGHT_BUMPER)
+
+        for (i in 0 until channelCount) {
+            if (isAxisPastThreshold(channelAxes[i], channelThresholds[i])) {
+                s = s or (1L shl (FIRST_ANALOG_BIT + i))
+            }
+        }
+
+        val changed = s xor lastState
+        state = s
+        rising = changed and s
+        falling = changed and lastState
+    }
+
+    /**
+     * Gets the bit of the analog channel for the given axis and threshold, registering it if it
+     * doesn't yet exist.
+     * @param axis The axis to threshold, e.g. [LEFT_STICK_X].
+     * @param threshold The value the axis must exceed for the channel to be high.
+     * @return The bit of the channel.
+     */
+    fun analogChannel(axis: Int, threshold: Double): Int {
+        for (i in 0 until channelCount) {
+            if (channelAxes[i] == axis && channelThresholds[i] == threshold) {
+                return FIRST_ANALOG_BIT + i
+            }
+        }
+
+        if (channelCount == MAX_ANALOG_CHANNELS) {
+            throw IllegalStateException("A gamepad may have at most $MAX_ANALOG_CHANNELS distinct analog channels")
+        }
+
+        channelAxes[channelCount] = axis
+        channelThresholds[channelCount] = threshold
+        return FIRST_ANALOG_BIT + channelCount++
+    }
+
+    /**
+     * Checks if the channel with the given bit is currently high.
+     */
+    fun isHigh(bit: Int) = state and (1L shl bit) != 0L
+
+    private fun isAxisPastThreshold(axis: Int, threshold: Double) = when (axis) {
+        LEFT_STICK_X  -> abs(gamepad.left_stick_x) > threshold
+        LEFT_STICK_Y  -> abs(gamepad.left_stick_y) > threshold
+        RIGHT_STICK_X -> abs(gamepad.right_stick_x) > threshold
+        RIGHT_STICK_Y -> abs(gamepad.right_stick_y) > threshold
+        LEFT_TRIGGER  -> gamepad.left_trigger > threshold
+        RIGHT_TRIGGER -> gamepad.right_trigger > threshold
+        else ->
+            abs(gamepad.left_stick_y)  > threshold ||
+            abs(gamepad.left_stick_x)  > threshold ||
+            abs(gamepad.right_stick_y) > threshold ||
+            abs(gamepad.right_stick_x) > threshold
+    }
+
+    companion object {
+        // Button bits
+        const val A = 0
+        const val B = 1
+        const val X = 2
+        const val Y = 3
+        const val DPAD_UP = 4
+        const val DPAD_DOWN = 5
+        const val DPAD_LEFT = 6
+        const val DPAD_RIGHT = 7
+        const val LEFT_BUMPER = 8
+        const val RIGHT_BUMPER = 9
+
+        // Analog axes
+        const val LEFT_STICK_X = 0
+        const val LEFT_STICK_Y = 1
+        const val RIGHT_STICK_X = 2
+        const val RIGHT_STICK_Y = 3
+        const val LEFT_TRIGGER = 4
+        const val RIGHT_TRIGGER = 5
+        const val JOYSTICKS = 6
+
+        private const val FIRST_ANALOG_BIT = 10
+        private const val MAX_ANALOG_CHANNELS = 64 - FIRST_ANALOG_BIT
+    }
+}
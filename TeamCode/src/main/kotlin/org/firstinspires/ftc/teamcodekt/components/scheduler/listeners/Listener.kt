@@ -2,8 +2,11 @@
 
 package org.firstinspires.ftc.teamcodekt.components.scheduler.listeners
 
+import org.firstinspires.ftc.teamcodekt.components.scheduler.ConditionNode
 import org.firstinspires.ftc.teamcodekt.components.scheduler.Scheduler
+import org.firstinspires.ftc.teamcodekt.components.scheduler.SchedulerScope
 import org.firstinspires.ftc.teamcodekt.components.scheduler.SignalEdgeDetector
+import org.firstinspires.ftc.teamcodekt.components.scheduler.SignalTrigger
 import org.firstinspires.ftc.teamcodekt.util.Condition
 
 /**
@@ -17,6 +20,9 @@ import org.firstinspires.ftc.teamcodekt.util.Condition
  * This means that it is safe to create excess unused [Listeners][Listener] without worrying about
  * performance burdens.
  *
+ * Listeners composed through [and], [or], etc. share their parents' [ConditionNode]s rather than
+ * calling the parents' conditions again, so each sub-condition is evaluated at most once per tick.
+ *
  * Java raw usage example:
  * ```java
  * @Override
@@ -48,13 +54,34 @@ import org.firstinspires.ftc.teamcodekt.util.Condition
  * @see GamepadEx2
  * @see Timer
  */
-open class Listener(_condition: Condition) {
+open class Listener internal constructor(node: ConditionNode) {
+
+    constructor(_condition: Condition) : this(ConditionNode.wrap(_condition))
 
     constructor() : this({ false })
 
-    var condition = _condition
+    /**
+     * The node in the condition DAG that this listener evaluates.
+     */
+    var conditionNode = node
+        private set
+
+    /**
+     * An optional name for this listener, used when reporting on the [Scheduler]'s loop timing.
+     */
+    var name: String? = null
+
+    /**
+     * How many ticks apart this listener is updated; `1` means every tick. Edges are detected
+     * between the ticks on which the listener is updated.
+     */
+    var rateDivisor = 1
+        private set
+
+    var condition: Condition = { conditionNode.getAsBoolean() }
         set(value) {
-            conditionSED = SignalEdgeDetector(value)
+            conditionNode = ConditionNode.wrap(value)
+            conditionSED = SignalEdgeDetector(conditionNode)
             field = value
         }
 
@@ -62,19 +89,31 @@ open class Listener(_condition: Condition) {
      * The subscribed set of [actions][Runnable] that are performed when the given
      * condition's state matches the given [SignalTrigger][SignalTrigger].
      */
-    private val actions = mutableMapOf<Runnable, Condition>()
+    private val actions = mutableMapOf<Runnable, SignalTrigger>()
+
+    /**
+     * A read-only view of the subscribed actions, used by the [Scheduler] to freeze this listener
+     * into its compiled action tables.
+     */
+    internal val subscribedActions: Map<Runnable, SignalTrigger>
+        get() = actions
 
     /**
      * A listener that evaluates the [condition][Condition] and checks whether the state of the
      * signal is [high][SignalTrigger.IS_HIGH], [low][SignalTrigger.IS_LOW],
      * [rising][SignalTrigger.RISING_EDGE], and/or [falling][SignalTrigger.FALLING_EDGE].
      */
-    private var conditionSED = SignalEdgeDetector(condition)
+    private var conditionSED = SignalEdgeDetector(conditionNode)
+
+    /**
+     * The [SchedulerScope] this listener is hooked into, or `null` if it hasn't been hooked yet.
+     */
+    private var scope: SchedulerScope? = null
 
     /**
-     * Remembers whether or not this listener has been hooked.
+     * Whether or not this listener is hooked into a live [SchedulerScope].
      */
-    private val isHooked = false
+    val isHooked get() = scope?.isClosed == false
 
     /**
      * Schedules the given action to run when the trigger [condition][Condition] changes from false to true.
@@ -83,7 +122,7 @@ open class Listener(_condition: Condition) {
      */
     fun onRise(action: Runnable) = this.also {
         hookIfNotHooked()
-        actions[action] = conditionSED::risingEdge
+        actions[action] = SignalTrigger.RISING_EDGE
     }
 
     /**
@@ -93,7 +132,7 @@ open class Listener(_condition: Condition) {
      */
     fun onFall(action: Runnable) = this.also {
         hookIfNotHooked()
-        actions[action] = conditionSED::fallingEdge
+        actions[action] = SignalTrigger.FALLING_EDGE
     }
 
     /**
@@ -103,7 +142,7 @@ open class Listener(_condition: Condition) {
      */
     fun whileHigh(action: Runnable) = this.also {
         hookIfNotHooked()
-        actions[action] = conditionSED::isHigh
+        actions[action] = SignalTrigger.IS_HIGH
     }
 
     /**
@@ -113,22 +152,49 @@ open class Listener(_condition: Condition) {
      */
     fun whileLow(action: Runnable) = this.also {
         hookIfNotHooked()
-        actions[action] = conditionSED::isLow
+        actions[action] = SignalTrigger.IS_LOW
     }
 
     /**
-     * Hooks this listener to the [Scheduler] if it has not already been hooked.
+     * Hooks this listener to the [Scheduler] if it has not already been hooked, or has the
+     * scope it's hooked into recompile it to pick up a newly subscribed action.
+     *
+     * A listener whose scope has since been torn down is never hooked again; the attempt is
+     * counted as a [leak][Scheduler.leakCount] instead.
      */
     private fun hookIfNotHooked() {
-        if (!isHooked) {
-            Scheduler.hookListener(this)
+        val hookedScope = scope
+
+        when {
+            hookedScope == null -> {
+                scope = Scheduler.current.also { it.hookListener(this) }
+                onHook()
+            }
+            hookedScope.isClosed -> Scheduler.reportLeak()
+            else -> hookedScope.invalidate()
         }
     }
 
+    /**
+     * Removes this listener from the [Scheduler] and clears its subscribed actions. The listener
+     * may be hooked again afterwards by subscribing new actions to it.
+     */
+    open fun unhook() {
+        scope?.unhookListener(this)
+        scope = null
+        actions.clear()
+    }
+
+    /**
+     * Called when this listener is hooked to the [Scheduler], allowing subclasses to hook any
+     * state they depend on as well.
+     */
+    protected open fun onHook() {}
+
     /**
      * Updates the state of the class's [SignalEdgeDetector]
      */
-    fun update() {
+    open fun update() {
         conditionSED.update()
     }
 
@@ -136,41 +202,80 @@ open class Listener(_condition: Condition) {
      * Performs the actions who's conditions evaluate to true.
      */
     fun doActiveActions() {
-        actions.forEach { (action, condition) ->
-            if (condition()) action.run()
+        actions.forEach { (action, trigger) ->
+            if (isTriggered(trigger.ordinal)) action.run()
         }
     }
 
-    operator fun invoke() = condition()
+    /**
+     * Checks whether the current signal state matches the [SignalTrigger] with the given ordinal.
+     */
+    internal open fun isTriggered(trigger: Int) = conditionSED.isTriggered(trigger)
+
+    /**
+     * Sets the [name] of this listener.
+     * @param name The name to report this listener as.
+     * @return This [Listener] instance.
+     */
+    fun named(name: String) = this.also {
+        this.name = name
+    }
+
+    /**
+     * Updates this listener only once every [divisor] ticks, staggered against the [Scheduler]'s
+     * other reduced-rate listeners and tasks.
+     * @param divisor How many ticks apart each update should be.
+     * @return This [Listener] instance.
+     */
+    fun atRate(divisor: Int) = this.also {
+        require(divisor >= 1) { "Rate divisor must be at least 1" }
+        rateDivisor = divisor
+        scope?.invalidate()
+    }
+
+    operator fun invoke() = conditionNode.getAsBoolean()
 
     // -----------------------------------------------------------------
     // Listener builders
     // -----------------------------------------------------------------
 
-    fun and(other: Condition) = Listener { condition() && other() }
+    fun and(other: Condition) = Listener(conditionNode and ConditionNode.wrap(other))
+
+    fun or(other: Condition) = Listener(conditionNode or ConditionNode.wrap(other))
+
+    fun not() = Listener(!conditionNode)
+
+    fun xor(other: Condition) = Listener(conditionNode xor ConditionNode.wrap(other))
+
+    fun nand(other: Condition) = Listener(conditionNode nand ConditionNode.wrap(other))
+
+    fun nor(other: Condition) = Listener(conditionNode nor ConditionNode.wrap(other))
+
+    fun xnor(other: Condition) = Listener(conditionNode xnor ConditionNode.wrap(other))
+
 
-    fun or(other: Condition) = Listener { condition() || other() }
+    fun and(other: Listener) = Listener(conditionNode and other.conditionNode)
 
-    fun not() = Listener { !condition() }
+    fun or(other: Listener) = Listener(conditionNode or other.conditionNode)
 
-    fun xor(other: Condition) = Listener { condition() xor other() }
+    fun xor(other: Listener) = Listener(conditionNode xor other.conditionNode)
 
-    fun nand(other: Condition) = Listener { !(condition() && other()) }
+    fun nand(other: Listener) = Listener(conditionNode nand other.conditionNode)
 
-    fun nor(other: Condition) = Listener { !(condition() || other()) }
+    fun nor(other: Listener) = Listener(conditionNode nor other.conditionNode)
 
-    fun xnor(other: Condition) = Listener { condition() == other() }
+    fun xnor(other: Listener) = Listener(conditionNode xnor other.conditionNode)
 
 
-    fun and(other: Listener) = Listener { condition() && other.condition() }
+    fun and(other: ConditionNode) = Listener(conditionNode and other)
 
-    fun or(other: Listener) = Listener { condition() || other.condition() }
+    fun or(other: ConditionNode) = Listener(conditionNode or other)
 
-    fun xor(other: Listener) = Listener { condition() xor other.condition() }
+    fun xor(other: ConditionNode) = Listener(conditionNode xor other)
 
-    fun nand(other: Listener) = Listener { !(condition() && other.condition()) }
+    fun nand(other: ConditionNode) = Listener(conditionNode nand other)
 
-    fun nor(other: Listener) = Listener { !(condition() || other.condition()) }
+    fun nor(other: ConditionNode) = Listener(conditionNode nor other)
 
-    fun xnor(other: Listener) = Listener { condition() == other.condition() }
+    fun xnor(other: ConditionNode) = Listener(conditionNode xnor other)
 }
@@ -0,0 +1,47 @@
+package org.firstinspires.ftc.teamcodekt.components.scheduler.listeners
+
+import org.firstinspires.ftc.teamcodekt.components.scheduler.ConditionNode
+import org.firstinspires.ftc.teamcodekt.components.scheduler.Scheduler
+import org.firstinspires.ftc.teamcodekt.components.scheduler.SignalTrigger.Companion.FALLING_EDGE_ORDINAL
+import org.firstinspires.ftc.teamcodekt.components.scheduler.SignalTrigger.Companion.IS_HIGH_ORDINAL
+import org.firstinspires.ftc.teamcodekt.components.scheduler.SignalTrigger.Companion.RISING_EDGE_ORDINAL
+
+/**
+ * A [Listener] that reads its state from a single bit of a [GamepadSnapshot] instead of
+ * evaluating its own condition, so it costs one bit test per tick.
+ *
+ * Its [condition] still reads the snapshot, so it may be freely composed with other listeners
+ * through [and], [or], etc.
+ *
+ * @param snapshot The snapshot to read from.
+ * @param bit The bit of the channel in the snapshot.
+ *
+ * @author KG
+ *
+ * @see GamepadSnapshot
+ * @see GamepadEx2
+ */
+class SnapshotListener(private val snapshot: GamepadSnapshot, bit: Int) :
+    Listener(ConditionNode.of { snapshot.isHigh(bit) }) {
+
+    private val mask = 1L shl bit
+
+    /**
+     * The snapshot is updated by the [Scheduler] itself, so there is nothing to do here.
+     */
+    override fun update() {}
+
+    override fun isTriggered(trigger: Int) = when (trigger) {
+        RISING_EDGE_ORDINAL  -> snapshot.rising and mask != 0L
+        FALLING_EDGE_ORDINAL -> snapshot.falling and mask != 0L
+        IS_HIGH_ORDINAL      -> snapshot.state and mask != 0L
+        else                 -> snapshot.state and mask == 0L
+    }
+
+    /**
+     * Rehooks the snapshot, in case this listener outlives the scope its [GamepadEx2] was made in.
+     */
+    override fun onHook() {
+        Scheduler.hookSnapshot(snapshot)
+    }
+}
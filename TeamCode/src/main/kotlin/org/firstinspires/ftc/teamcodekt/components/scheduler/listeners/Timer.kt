@@ -1,10 +1,16 @@
 package org.firstinspires.ftc.teamcodekt.components.scheduler.listeners
 
+import org.firstinspires.ftc.teamcodekt.components.scheduler.Scheduler
+import org.firstinspires.ftc.teamcodekt.components.scheduler.SchedulerClock
+import org.firstinspires.ftc.teamcodekt.components.scheduler.TimingWheel
 import java.util.concurrent.TimeUnit
 
 /**
  * A timer that can be used to schedule actions to be performed at a specific time.
  *
+ * Timers don't poll the clock themselves; starting one registers its expiry on the [Scheduler]'s
+ * [TimingWheel], which flips the timer to done on the first tick after its deadline.
+ *
  * Java usage example:
  * ```java
  * @Override
@@ -39,23 +45,41 @@ import java.util.concurrent.TimeUnit
  */
 class Timer @JvmOverloads constructor(length: Long, unit: TimeUnit = TimeUnit.MILLISECONDS) : Listener() {
     init {
-        condition = { !isPending && timeMs() >= this.length }
+        condition = { !isPending && isExpired }
     }
 
     /**
-     * The length of the timer in milliseconds.
+     * The length of the timer in nanoseconds.
      */
-    private val length = unit.toMillis(length)
+    private val length = unit.toNanos(length)
 
     /**
-     * The time at which the timer started.
+     * Determines whether the timer is running or simply waiting to start.
      */
-    private var startTime = System.currentTimeMillis()
+    private var isPending = false
 
     /**
-     * Determines whether the timer is running or simply waiting to start.
+     * Set by the [TimingWheel] once the timer's length has elapsed.
      */
-    private var isPending = false
+    private var isExpired = false
+
+    /**
+     * The scope whose [TimingWheel] this timer expires on; the one current when it was created.
+     */
+    private val wheelScope = Scheduler.current
+
+    /**
+     * The timer's entry in the [Scheduler]'s [TimingWheel].
+     */
+    private val expiry = object : TimingWheel.Entry() {
+        override fun onExpire() {
+            isExpired = true
+        }
+    }
+
+    init {
+        restart()
+    }
 
     /**
      * Schedules the given action to run while the timer is running and not yet finsihed.
@@ -76,18 +100,22 @@ class Timer @JvmOverloads constructor(length: Long, unit: TimeUnit = TimeUnit.MI
      */
     fun start() {
         isPending = false
-        startTime = System.currentTimeMillis()
+        restart()
     }
 
     /**
      * Resets the timer.
      */
     fun reset() {
-        startTime = System.currentTimeMillis()
+        restart()
     }
 
+    /**
+     * Finishes the timer immediately, as if its length had already elapsed.
+     */
     fun finishPrematurely() {
-        startTime = System.currentTimeMillis() + length
+        wheelScope.timingWheel.cancel(expiry)
+        isExpired = true
     }
 
     /**
@@ -98,10 +126,23 @@ class Timer @JvmOverloads constructor(length: Long, unit: TimeUnit = TimeUnit.MI
     }
 
     /**
-     * Gets the current time in milliseconds.
-     * @return The current time in milliseconds.
+     * Registers a new expiry [length] nanoseconds from now.
+     */
+    private fun restart() {
+        isExpired = false
+
+        if (wheelScope.isClosed) {
+            Scheduler.reportLeak()
+            return
+        }
+        wheelScope.timingWheel.schedule(expiry, SchedulerClock.nanoTime() + length)
+    }
+
+    /**
+     * Removes this timer from the [Scheduler], also cancelling its pending expiry.
      */
-    private fun timeMs(): Long {
-        return if (isPending) -1 else System.currentTimeMillis() - startTime
+    override fun unhook() {
+        super.unhook()
+        wheelScope.timingWheel.cancel(expiry)
     }
 }
@@ -0,0 +1,281 @@
+package org.firstinspires.ftc.teamcodekt.components.scheduler.taskchains
+
+import org.firstinspires.ftc.teamcodekt.components.scheduler.Scheduler
+import org.firstinspires.ftc.teamcodekt.components.scheduler.SchedulerClock
+import org.firstinspires.ftc.teamcodekt.components.scheduler.SchedulerScope
+import java.util.concurrent.CancellationException
+import java.util.concurrent.TimeUnit
+import java.util.function.BooleanSupplier
+import kotlin.coroutines.Continuation
+import kotlin.coroutines.CoroutineContext
+import kotlin.coroutines.EmptyCoroutineContext
+import kotlin.coroutines.createCoroutine
+import kotlin.coroutines.intrinsics.COROUTINE_SUSPENDED
+import kotlin.coroutines.intrinsics.suspendCoroutineUninterceptedOrReturn
+import kotlin.coroutines.resume
+import kotlin.coroutines.resumeWithException
+
+/**
+ * A sequential task chain written as a suspending function, stepped by the [Scheduler] inside its
+ * tick rather than built out of [Timers][org.firstinspires.ftc.teamcodekt.components.scheduler.listeners.Timer]
+ * and flags.
+ *
+ * [Launching][launch] a routine runs its body right away, up to its first wait. From then on, the
+ * [Scheduler] checks the routine's wait once per tick, right after the listeners, and resumes it on
+ * the very tick that the wait is over, so each step hands off to the next on the exact tick.
+ * Checking a wait never allocates.
+ *
+ * Only one run of a routine is active at a time; launching it again cancels the current run first.
+ * All active routines are dropped along with the scope they were launched in when the OpMode stops.
+ *
+ * A routine may declare the subsystems (e.g. `bot.arm()`, `bot.lift()`) it commands. Launching it
+ * reserves them, preempting whichever other routine held any of them, so two chains never fight
+ * over the same mechanism. A preempted routine is unwound at its current wait; its `catch` and
+ * `finally` blocks still run, but every wait after that throws straight away, so it can't issue
+ * any more commands once the new owner has taken over.
+ *
+ * Kotlin usage example:
+ * ```kotlin
+ * val intake = ChainRoutine(bot.arm(), bot.wrist(), bot.lift()) {
+ *     // ...
+ * }
+ * ```
+ *
+ * @param requirements The subsystems this routine commands.
+ * @param body The body of the routine.
+ *
+ * @author KG
+ *
+ * @see ChainScope
+ * @see Scheduler
+ */
+class ChainRoutine(
+    private vararg val requirements: Any,
+    private val body: suspend ChainScope.() -> Unit,
+) : ChainScope() {
+    /**
+     * The suspended body, or `null` if it's running or not active.
+     */
+    private var continuation: Continuation<Unit>? = null
+
+    private var waitKind = NOT_WAITING
+    private var deadline = 0L
+    private var waitCondition: BooleanSupplier? = null
+    private var waitAction: Runnable? = null
+
+    private var cancelCondition: BooleanSupplier? = null
+    private var cancelConditionWasHigh = false
+    private var isCancelPending = false
+    private var isPreempted = false
+
+    /**
+     * The scope the current run was launched in, holding this routine's reservations.
+     */
+    private var scope: SchedulerScope? = null
+
+    private var isRunning = false
+
+    /**
+     * Whether or not the routine is in the [Scheduler]'s list of routines to step.
+     */
+    internal var isHooked = false
+
+    /**
+     * Whether or not a run of this routine is currently in progress.
+     */
+    var isActive = false
+        private set
+
+    private val completion = object : Continuation<Unit> {
+        override val context: CoroutineContext
+            get() = EmptyCoroutineContext
+
+        override fun resumeWith(result: Result<Unit>) {
+            reset()
+
+            val exception = result.exceptionOrNull()
+            if (exception != null && exception !is CancellationException) {
+                throw exception
+            }
+        }
+    }
+
+    /**
+     * Starts a new run of this routine, preempting the current one if it's still active, along
+     * with any other routine holding one of this routine's [requirements].
+     */
+    fun launch() {
+        if (isActive) {
+            preempt()
+
+            if (isActive) {
+                reset()
+            }
+        }
+
+        val scope = Scheduler.current
+        this.scope = scope
+        isActive = true
+
+        scope.hookChain(this)
+        scope.reserve(this, requirements)
+        resume(body.createCoroutine(this, completion), null)
+    }
+
+    /**
+     * Cancels the current run of this routine, if any. The routine's current wait throws a
+     * [CancellationException] right away, or its next one does if it's running.
+     */
+    fun cancel() {
+        if (!isActive) {
+            return
+        }
+
+        val cont = continuation
+
+        if (isRunning || cont == null) {
+            isCancelPending = true
+        } else {
+            resume(cont, CANCELLED)
+        }
+    }
+
+    /**
+     * Cancels the current run of this routine for good, so that every wait from now on throws.
+     * Called when another routine takes over one of this routine's [requirements].
+     */
+    internal fun preempt() {
+        if (isActive) {
+            isPreempted = true
+            cancel()
+        }
+    }
+
+    /**
+     * Checks the routine's current wait, resuming it if the wait is over.
+     * @param now The [SchedulerClock.nanoTime] at which the current tick started.
+     */
+    internal fun step(now: Long) {
+        val cont = continuation ?: return
+
+        val cancel = cancelCondition
+        if (cancel != null) {
+            val isHigh = cancel.asBoolean
+            val hasRisen = isHigh && !cancelConditionWasHigh
+            cancelConditionWasHigh = isHigh
+
+            if (hasRisen) {
+                cancelCondition = null
+                resume(cont, CANCELLED)
+                return
+            }
+        }
+
+        val isReady = when (waitKind) {
+            WAITING_FOR_TIME      -> now >= deadline
+            WAITING_FOR_CONDITION -> waitCondition!!.asBoolean
+            else                  -> true
+        }
+
+        if (isReady) {
+            resume(cont, null)
+        } else {
+            waitAction?.run()
+        }
+    }
+
+    /**
+     * Drops the current run without resuming it, e.g. when its scope is torn down.
+     */
+    internal fun abandon() {
+        reset()
+        isHooked = false
+    }
+
+    override suspend fun nextTick() {
+        suspendFor(WAITING_FOR_TICK)
+    }
+
+    override suspend fun delay(length: Long, unit: TimeUnit) {
+        deadline = SchedulerClock.nanoTime() + unit.toNanos(length)
+        suspendFor(WAITING_FOR_TIME)
+    }
+
+    override suspend fun awaitUntil(condition: BooleanSupplier) {
+        if (!isCancelPending && !isPreempted && condition.asBoolean) {
+            waitAction = null
+            return
+        }
+
+        waitCondition = condition
+        suspendFor(WAITING_FOR_CONDITION)
+    }
+
+    override fun whileWaiting(action: Runnable) {
+        waitAction = action
+    }
+
+    override fun cancelOn(condition: BooleanSupplier) {
+        cancelCondition = condition
+        cancelConditionWasHigh = condition.asBoolean
+    }
+
+    private suspend fun suspendFor(kind: Int) {
+        if (isCancelPending || isPreempted) {
+            isCancelPending = false
+            waitAction = null
+            throw CANCELLED
+        }
+
+        waitKind = kind
+
+        return suspendCoroutineUninterceptedOrReturn { cont ->
+            continuation = cont
+            COROUTINE_SUSPENDED
+        }
+    }
+
+    private fun resume(cont: Continuation<Unit>, cause: Throwable?) {
+        continuation = null
+        waitKind = NOT_WAITING
+        waitCondition = null
+        waitAction = null
+
+        isRunning = true
+        try {
+            if (cause == null) {
+                cont.resume(Unit)
+            } else {
+                cont.resumeWithException(cause)
+            }
+        } finally {
+            isRunning = false
+        }
+    }
+
+    private fun reset() {
+        scope?.release(this, requirements)
+        scope = null
+
+        isActive = false
+        isPreempted = false
+        continuation = null
+        waitKind = NOT_WAITING
+        waitCondition = null
+        waitAction = null
+        cancelCondition = null
+        isCancelPending = false
+    }
+
+    private companion object {
+        const val NOT_WAITING = 0
+        const val WAITING_FOR_TICK = 1
+        const val WAITING_FOR_TIME = 2
+        const val WAITING_FOR_CONDITION = 3
+
+        /**
+         * Thrown into a routine's wait to cancel it. Shared, since it only unwinds the routine.
+         */
+        val CANCELLED = CancellationException("Task chain cancelled")
+    }
+}
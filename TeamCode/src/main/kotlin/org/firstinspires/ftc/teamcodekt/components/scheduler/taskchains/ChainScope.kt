@@ -0,0 +1,85 @@
+package org.firstinspires.ftc.teamcodekt.components.scheduler.taskchains
+
+import org.firstinspires.ftc.teamcodekt.components.scheduler.Scheduler
+import org.firstinspires.ftc.teamcodekt.components.scheduler.listeners.Listener
+import java.util.concurrent.TimeUnit
+import java.util.function.BooleanSupplier
+
+/**
+ * The functions available inside the body of a [ChainRoutine]. Each suspending function parks
+ * the routine until the [Scheduler] resumes it on the tick its wait is over, without blocking or
+ * spawning any threads.
+ *
+ * Kotlin usage example:
+ * ```kotlin
+ * val deposit = ChainRoutine {
+ *     cancelOn(codriver.x)
+ *
+ *     whileWaiting { arm.setToForwardsTelePos() }
+ *     awaitUntil(!button.conditionNode)
+ *
+ *     claw.openForDeposit()
+ *     delay(500)
+ *     claw.close()
+ * }
+ *
+ * button.onRise(deposit::launch)
+ * ```
+ *
+ * @author KG
+ *
+ * @see ChainRoutine
+ */
+@RestrictsSuspension
+abstract class ChainScope {
+    /**
+     * Suspends the routine until the next tick.
+     */
+    abstract suspend fun nextTick()
+
+    /**
+     * Suspends the routine until the given length of time has elapsed.
+     * @param length The length of time to wait.
+     * @param unit The unit of [length].
+     */
+    abstract suspend fun delay(length: Long, unit: TimeUnit)
+
+    /**
+     * Suspends the routine until the given number of milliseconds has elapsed.
+     */
+    suspend fun delay(millis: Long) = delay(millis, TimeUnit.MILLISECONDS)
+
+    /**
+     * Suspends the routine until the given condition is true, checking it once per tick. Returns
+     * immediately, without waiting for the next tick, if the condition is already true.
+     * @param condition The condition to wait for.
+     */
+    abstract suspend fun awaitUntil(condition: BooleanSupplier)
+
+    /**
+     * Suspends the routine until the condition of the given [Listener] is true.
+     * @see awaitUntil
+     */
+    suspend fun awaitUntil(listener: Listener) = awaitUntil(listener.conditionNode)
+
+    /**
+     * Runs the given action once per tick while the routine is suspended on its next wait. The
+     * action is cleared as soon as the routine resumes.
+     * @param action The action to run on each tick spent waiting.
+     */
+    abstract fun whileWaiting(action: Runnable)
+
+    /**
+     * Cancels the routine at its current (or next) wait once the given condition goes from false
+     * to true. The wait then throws a [CancellationException][java.util.concurrent.CancellationException],
+     * which the routine may catch to clean up; the condition is cleared once it fires.
+     * @param condition The condition to cancel on.
+     */
+    abstract fun cancelOn(condition: BooleanSupplier)
+
+    /**
+     * Cancels the routine once the condition of the given [Listener] goes from false to true.
+     * @see cancelOn
+     */
+    fun cancelOn(listener: Listener) = cancelOn(listener.conditionNode)
+}
@@ -0,0 +1,59 @@
+package org.firstinspires.ftc.teamcodekt.components.taskchains
+
+import org.firstinspires.ftc.teamcode.components.bot.Bot
+import org.firstinspires.ftc.teamcodekt.components.scheduler.ConditionNode
+import org.firstinspires.ftc.teamcodekt.components.scheduler.listeners.Listener
+import org.firstinspires.ftc.teamcodekt.components.scheduler.taskchains.CancellableTaskChain
+import org.firstinspires.ftc.teamcodekt.components.scheduler.taskchains.ChainRoutine
+import java.util.concurrent.CancellationException
+
+/**
+ * Holds the arm and wrist in the backwards deposit position while the button is held, opens the
+ * claw on release, then closes it and lowers the lift.
+ *
+ * Cancelling skips the deposit; the claw is still closed and the lift lowered once the button is
+ * released.
+ *
+ * The chain reserves the arm, wrist, claw, and lift, so starting it preempts any other chain
+ * still moving them.
+ *
+ * @author KG
+ */
+class BackwardsDepositChain(private val bot: Bot, private val clawOpeningTime: Int) : CancellableTaskChain {
+    private var cancelCondition: ConditionNode? = null
+
+    override fun invokeOn(listener: Listener) {
+        val released = !listener.conditionNode
+
+        val routine = ChainRoutine(bot.arm(), bot.wrist(), bot.claw(), bot.lift()) {
+            cancelCondition?.let { cancelOn(it) }
+
+            try {
+                whileWaiting(holdPosition)
+                awaitUntil(released)
+
+                bot.claw().openForDeposit()
+
+                whileWaiting(holdPosition)
+                delay(clawOpeningTime.toLong())
+            } catch (e: CancellationException) {
+                awaitUntil(released)
+            }
+
+            bot.claw().close()
+            delay(200)
+            bot.lift().goToZero()
+        }
+
+        listener.onRise(routine::launch)
+    }
+
+    override fun cancelOn(listener: Listener) {
+        cancelCondition = cancelCondition?.or(listener.conditionNode) ?: listener.conditionNode
+    }
+
+    private val holdPosition = Runnable {
+        bot.arm().setToBackwardsTelePos()
+        bot.wrist().setToBackwardsPos()
+    }
+}
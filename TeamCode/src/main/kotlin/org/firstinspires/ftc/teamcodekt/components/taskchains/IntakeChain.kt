@@ -0,0 +1,56 @@
+package org.firstinspires.ftc.teamcodekt.components.taskchains
+
+import org.firstinspires.ftc.teamcode.components.bot.Bot
+import org.firstinspires.ftc.teamcode.util.RobotConstants
+import org.firstinspires.ftc.teamcodekt.components.mechanism.MechanismPlanner
+import org.firstinspires.ftc.teamcodekt.components.mechanism.MechanismPose
+import org.firstinspires.ftc.teamcodekt.components.scheduler.listeners.Listener
+import org.firstinspires.ftc.teamcodekt.components.scheduler.taskchains.ChainRoutine
+import org.firstinspires.ftc.teamcodekt.components.scheduler.taskchains.TaskChain
+
+/**
+ * Runs the intake with the claw open while the button is held, then closes the claw, stops the
+ * intake, and holds the arm and wrist back while the claw finishes closing.
+ *
+ * The lift, arm, and wrist are brought back together through a [MechanismPlanner], so that an arm
+ * left forwards after a deposit swings back before the lift drops below it.
+ *
+ * The chain reserves the arm, wrist, claw, and lift, so starting it preempts any other chain
+ * still moving them.
+ *
+ * @author KG
+ */
+class IntakeChain(private val bot: Bot, private val clawClosingTime: Int) : TaskChain {
+    private val planner = MechanismPlanner(bot.lift(), bot.arm(), bot.wrist())
+
+    override fun invokeOn(listener: Listener) {
+        val released = !listener.conditionNode
+
+        val routine = ChainRoutine(bot.arm(), bot.wrist(), bot.claw(), bot.lift(), bot.intake()) {
+            bot.intake().enable()
+            bot.claw().openForIntakeNarrow()
+
+            val move = planner.plan(MechanismPose.backwardsTele(RobotConstants.Lift.ZERO))
+
+            whileWaiting(move)
+            awaitUntil(released)
+
+            bot.claw().close()
+            bot.intake().disable()
+
+            whileWaiting(move)
+            delay(clawClosingTime.toLong())
+
+            whileWaiting(move)
+            awaitUntil { move.isDone || move.isOverdue }
+
+            // If the arm never made it back past vertical, the lift is left at the clearance height
+            // rather than dropped onto it
+            if (move.isDone) {
+                bot.lift().goToZero()
+            }
+        }
+
+        listener.onRise(routine::launch)
+    }
+}
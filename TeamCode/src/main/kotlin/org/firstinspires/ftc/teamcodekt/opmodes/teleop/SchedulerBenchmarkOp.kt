@@ -0,0 +1,71 @@
+package org.firstinspires.ftc.teamcodekt.opmodes.teleop
+
+import android.os.Debug
+import com.qualcomm.robotcore.eventloop.opmode.LinearOpMode
+import com.qualcomm.robotcore.eventloop.opmode.TeleOp
+import org.firstinspires.ftc.teamcodekt.components.scheduler.Scheduler
+import org.firstinspires.ftc.teamcodekt.components.scheduler.listeners.Listener
+
+/**
+ * Benchmarks the [Scheduler]'s compiled tick, reporting how many objects are allocated and how
+ * long each tick takes with a listener graph roughly the size of RogueCompOp's.
+ *
+ * Requires no hardware; just init and start it. A healthy scheduler should report `0` allocations
+ * per tick.
+ *
+ * @author KG
+ */
+@TeleOp(name = "SchedulerBenchmarkOpKt")
+class SchedulerBenchmarkOp : LinearOpMode() {
+    private var tickCount = 0
+    private var actionRuns = 0
+
+    private var allocations = 0
+    private var startTime = 0L
+    private var endTime = 0L
+
+    @Suppress("DEPRECATION")
+    override fun runOpMode() {
+        repeat(LISTENER_COUNT) { i ->
+            Listener { (tickCount + i) % 4 < 2 }
+                .onRise { actionRuns++ }
+                .onFall { actionRuns++ }
+                .whileHigh { actionRuns++ }
+                .whileLow { actionRuns++ }
+        }
+
+        waitForStart()
+
+        Scheduler.start(this) {
+            tickCount++
+
+            when (tickCount) {
+                WARMUP_TICKS -> {
+                    Debug.resetThreadAllocCount()
+                    Debug.startAllocCounting()
+                    startTime = System.nanoTime()
+                }
+                WARMUP_TICKS + MEASURED_TICKS -> {
+                    endTime = System.nanoTime()
+                    Debug.stopAllocCounting()
+                    allocations = Debug.getThreadAllocCount()
+                }
+            }
+
+            if (tickCount > WARMUP_TICKS + MEASURED_TICKS) {
+                telemetry.addData("Listeners", LISTENER_COUNT)
+                telemetry.addData("Measured ticks", MEASURED_TICKS)
+                telemetry.addData("Allocations per tick", allocations.toDouble() / MEASURED_TICKS)
+                telemetry.addData("Avg. tick time (us)", (endTime - startTime) / 1000.0 / MEASURED_TICKS)
+                telemetry.addData("Action runs", actionRuns)
+                telemetry.update()
+            }
+        }
+    }
+
+    private companion object {
+        const val LISTENER_COUNT = 20
+        const val WARMUP_TICKS = 500
+        const val MEASURED_TICKS = 10_000
+    }
+}
@@ -0,0 +1,115 @@
+package org.firstinspires.ftc.teamcodekt.sim
+
+import com.qualcomm.robotcore.eventloop.opmode.LinearOpMode
+import org.firstinspires.ftc.teamcodekt.components.hardware.AnalogPoller
+import org.firstinspires.ftc.teamcodekt.components.hardware.BatteryVoltage
+import org.firstinspires.ftc.teamcodekt.components.hardware.InputRecorder
+import org.firstinspires.ftc.teamcodekt.components.hardware.InputRecording
+import org.firstinspires.ftc.teamcodekt.components.hardware.ProfiledAnalogInput
+import org.firstinspires.ftc.teamcodekt.components.scheduler.Scheduler
+
+/**
+ * Replays an [InputRecording] through an unmodified OpMode, tick for tick, as fast as the code runs;
+ * for profiling, or bisecting a misbehaviour, off the robot.
+ *
+ * Rather than stepping any physics, each tick feeds the OpMode the inputs recorded for that tick:
+ * the gamepads, the motors' encoders (through the [SimRobot]'s motors, so the components and Road
+ * Runner's localizer read them as usual), the [AnalogPoller] channels, and the [BatteryVoltage].
+ * The [Scheduler]'s clock (which Road Runner's `TrajectorySequenceRunner` also keeps time by) is set
+ * to each tick's recorded start time, so timers, task chain delays, and trajectories play out
+ * exactly as they did on the robot. Once the last recorded tick has run, the OpMode is stopped.
+ *
+ * Extra channels recorded with [InputRecorder.trackInt] (e.g. the vision result) can be read back
+ * with [intValue].
+ *
+ * Java usage example:
+ * ```java
+ * InputReplay replay = new InputReplay(new InputRecording(new File("RogueCompOp-1676153724000.rrec")));
+ * SimResult result = replay.run(new RogueCompOp());
+ * ```
+ *
+ * @param recording The recording to replay.
+ *
+ * @author KG
+ *
+ * @see InputRecorder
+ */
+class InputReplay(private val recording: InputRecording) {
+    val robot = SimRobot(SimClock(if (recording.tickCount > 0) recording.timestampNanos(0) else 0))
+
+    private val runner = SimRunner(robot)
+
+    private val motors = recording.motorNames.map { robot.hardwareMap.tryGet(SimMotor::class.java, it) }
+
+    private val voltages = DoubleArray(recording.analogCount)
+    private val filtered = DoubleArray(recording.analogCount)
+
+    /**
+     * The index of the recorded tick being replayed.
+     */
+    var tick = 0
+        private set
+
+    /**
+     * The latest value of every telemetry caption the OpMode added.
+     */
+    val telemetryData get() = runner.telemetryData
+
+    /**
+     * Gets the value of an extra int channel at the tick being replayed.
+     */
+    fun intValue(channel: Int) = recording.intValue(tick, channel)
+
+    /**
+     * Runs the given OpMode through every recorded tick.
+     * @param opMode The OpMode to run; it should be the one that was recorded, and must not have
+     * been run before.
+     * @return How long was replayed, and how long it took.
+     */
+    fun run(opMode: LinearOpMode): SimResult {
+        if (recording.tickCount == 0) {
+            return SimResult(0.0, 0.0, 0)
+        }
+        tick = 0
+
+        val wallSeconds = runner.launch(opMode, ::applyTick) {
+            if (tick + 1 < recording.tickCount) {
+                robot.clock.advance(recording.timestampNanos(tick + 1) - robot.clock.nanos)
+                tick++
+            } else {
+                Thread.currentThread().interrupt()
+            }
+        }
+
+        val replayedSeconds = (recording.timestampNanos(tick) - recording.timestampNanos(0)) / 1e9
+        return SimResult(replayedSeconds, wallSeconds, tick + 1L)
+    }
+
+    /**
+     * Feeds the inputs recorded for the current tick in, before anything else reads them.
+     */
+    private fun applyTick() {
+        recording.readGamepad(tick, 1, runner.gamepad1)
+        recording.readGamepad(tick, 2, runner.gamepad2)
+
+        for (i in motors.indices) {
+            motors[i]?.setReading(recording.motorPosition(tick, i), recording.motorVelocity(tick, i))
+        }
+
+        if (AnalogPoller.channelCount == voltages.size) {
+            for (i in voltages.indices) {
+                voltages[i] = recording.analogVoltage(tick, i)
+                filtered[i] = recording.analogFiltered(tick, i)
+            }
+            AnalogPoller.inject(voltages, filtered, robot.clock.nanos)
+
+            // Components reading an input straight from the snapshot see the recorded voltage too
+            for (i in voltages.indices) {
+                val input = AnalogPoller.input(i).let { (it as? ProfiledAnalogInput)?.input ?: it }
+                (input as? SimAnalogInput)?.simVoltage = voltages[i]
+            }
+        }
+
+        BatteryVoltage.inject(recording.batteryVolts(tick))
+    }
+}
@@ -0,0 +1,45 @@
+package org.firstinspires.ftc.teamcodekt.sim
+
+import java.util.function.LongSupplier
+
+/**
+ * A virtual clock that only moves when [advanced][advance], so a simulation can run as fast as
+ * the CPU allows, and the same inputs always produce the same timeline.
+ *
+ * Starts at the real [System.nanoTime] by default, so that anything created before the clock was
+ * swapped in never sees time go backwards.
+ *
+ * @param startNanos The time to start the clock at, in nanoseconds.
+ *
+ * @author KG
+ *
+ * @see org.firstinspires.ftc.teamcodekt.components.scheduler.SchedulerClock
+ */
+class SimClock @JvmOverloads constructor(startNanos: Long = System.nanoTime()) : LongSupplier {
+    /**
+     * The current virtual time, in nanoseconds.
+     */
+    @Volatile
+    var nanos = startNanos
+        private set
+
+    /**
+     * The time the clock was started at, in nanoseconds.
+     */
+    val startNanos = startNanos
+
+    /**
+     * The virtual time elapsed since the clock was started, in seconds.
+     */
+    val elapsedSeconds get() = (nanos - startNanos) / 1e9
+
+    /**
+     * Moves the clock forwards.
+     * @param deltaNanos How far to move it, in nanoseconds.
+     */
+    fun advance(deltaNanos: Long) {
+        nanos += deltaNanos
+    }
+
+    override fun getAsLong() = nanos
+}
@@ -0,0 +1,407 @@
+package org.firstinspires.ftc.teamcodekt.sim
+
+import com.qualcomm.robotcore.hardware.AnalogInput
+import com.qualcomm.robotcore.hardware.CRServo
+import com.qualcomm.robotcore.hardware.DcMotor
+import com.qualcomm.robotcore.hardware.DcMotorController
+import com.qualcomm.robotcore.hardware.DcMotorEx
+import com.qualcomm.robotcore.hardware.DcMotorSimple
+import com.qualcomm.robotcore.hardware.HardwareDevice
+import com.qualcomm.robotcore.hardware.PIDCoefficients
+import com.qualcomm.robotcore.hardware.PIDFCoefficients
+import com.qualcomm.robotcore.hardware.Servo
+import com.qualcomm.robotcore.hardware.ServoController
+import com.qualcomm.robotcore.hardware.VoltageSensor
+import com.qualcomm.robotcore.hardware.configuration.typecontainers.MotorConfigurationType
+import org.firstinspires.ftc.robotcore.external.navigation.AngleUnit
+import org.firstinspires.ftc.robotcore.external.navigation.CurrentUnit
+import kotlin.math.abs
+
+/**
+ * The connection info every simulated device reports, so that anything grouping devices by hub
+ * (e.g. the `OutputStage`) sees them all on one.
+ */
+internal const val SIM_HUB = "Simulated hub"
+
+/**
+ * A simulated [DcMotorEx]. It only stores what it's told and what its [SimModel] writes back;
+ * the physics live in the model.
+ *
+ * Like the real thing, [direction][getDirection] flips both the power sent to the shaft and the
+ * encoder counts read back, `STOP_AND_RESET_ENCODER` zeroes the encoder, and `RUN_TO_POSITION`
+ * drives towards the target at up to the set power.
+ *
+ * @param name The name of the motor in the [SimRobot]'s hardware map.
+ * @param ticksPerRev The encoder counts per revolution of the shaft.
+ * @param freeSpeed The shaft's free speed at 12V, in encoder counts per second.
+ *
+ * @author KG
+ */
+class SimMotor(
+    private val name: String,
+    val ticksPerRev: Double,
+    val freeSpeed: Double,
+) : DcMotorEx {
+    private var power = 0.0
+    private var direction = DcMotorSimple.Direction.FORWARD
+    private var mode = DcMotor.RunMode.RUN_WITHOUT_ENCODER
+    private var zeroPowerBehavior = DcMotor.ZeroPowerBehavior.FLOAT
+    private var motorType = MotorConfigurationType.getUnspecifiedMotorType()
+    private var isEnabled = true
+
+    private var targetPosition = 0
+    private var targetPositionTolerance = 5
+    private var currentAlert = 5.0
+
+    private val pidfCoefficients = HashMap<DcMotor.RunMode, PIDFCoefficients>()
+
+    /**
+     * The raw encoder count at the port, as set by the model; not flipped by [direction].
+     */
+    var rawPosition = 0.0
+
+    /**
+     * The raw encoder velocity at the port, in counts per second, as set by the model.
+     */
+    var rawVelocity = 0.0
+
+    /**
+     * The current drawn by the motor, in amps, as set by the model.
+     */
+    var current = 0.0
+
+    private var encoderOffset = 0.0
+
+    private val directionSign get() = if (direction == DcMotorSimple.Direction.REVERSE) -1 else 1
+
+    /**
+     * Sets the encoder so that it reads back exactly the given values, as they'd be seen through
+     * the motor's current direction and encoder reset, e.g. to replay a recording.
+     */
+    fun setReading(position: Int, velocity: Double) {
+        rawPosition = position * directionSign + encoderOffset
+        rawVelocity = velocity * directionSign
+    }
+
+    /**
+     * The fraction of full voltage sent to the shaft, in `[-1, 1]`, after the direction,
+     * `RUN_TO_POSITION`, and enable state are applied; positive spins the shaft forwards.
+     */
+    val shaftOutput: Double
+        get() {
+            if (!isEnabled || mode == DcMotor.RunMode.STOP_AND_RESET_ENCODER) {
+                return 0.0
+            }
+
+            val output = if (mode == DcMotor.RunMode.RUN_TO_POSITION) {
+                val error = targetPosition - currentPosition
+                (error * RUN_TO_POSITION_P).coerceIn(-abs(power), abs(power))
+            } else {
+                power
+            }
+            return output * directionSign
+        }
+
+    /**
+     * Whether the shaft is shorted when unpowered, resisting being back-driven.
+     */
+    val isBraking get() = zeroPowerBehavior == DcMotor.ZeroPowerBehavior.BRAKE
+
+    override fun setPower(power: Double) {
+        this.power = power.coerceIn(-1.0, 1.0)
+    }
+
+    override fun getPower() = power
+
+    override fun setDirection(direction: DcMotorSimple.Direction) {
+        this.direction = direction
+    }
+
+    override fun getDirection() = direction
+
+    override fun getCurrentPosition() = ((rawPosition - encoderOffset) * directionSign).toInt()
+
+    override fun setMode(mode: DcMotor.RunMode) {
+        this.mode = mode
+
+        if (mode == DcMotor.RunMode.STOP_AND_RESET_ENCODER) {
+            encoderOffset = rawPosition
+            power = 0.0
+        }
+    }
+
+    override fun getMode() = mode
+
+    override fun setTargetPosition(position: Int) {
+        targetPosition = position
+    }
+
+    override fun getTargetPosition() = targetPosition
+
+    override fun isBusy() = mode == DcMotor.RunMode.RUN_TO_POSITION &&
+        abs(targetPosition - currentPosition) > targetPositionTolerance
+
+    override fun setZeroPowerBehavior(zeroPowerBehavior: DcMotor.ZeroPowerBehavior) {
+        this.zeroPowerBehavior = zeroPowerBehavior
+    }
+
+    override fun getZeroPowerBehavior() = zeroPowerBehavior
+
+    @Deprecated("Deprecated in Java")
+    override fun setPowerFloat() {
+        zeroPowerBehavior = DcMotor.ZeroPowerBehavior.FLOAT
+        power = 0.0
+    }
+
+    override fun getPowerFloat() = zeroPowerBehavior == DcMotor.ZeroPowerBehavior.FLOAT && power == 0.0
+
+    override fun getMotorType(): MotorConfigurationType = motorType
+
+    override fun setMotorType(motorType: MotorConfigurationType) {
+        this.motorType = motorType
+    }
+
+    override fun getController(): DcMotorController? = null
+
+    override fun getPortNumber() = 0
+
+    override fun setMotorEnable() {
+        isEnabled = true
+    }
+
+    override fun setMotorDisable() {
+        isEnabled = false
+    }
+
+    override fun isMotorEnabled() = isEnabled
+
+    override fun setVelocity(angularRate: Double) {
+        power = (angularRate / freeSpeed).coerceIn(-1.0, 1.0)
+    }
+
+    override fun setVelocity(angularRate: Double, unit: AngleUnit) {
+        setVelocity(unit.toRadians(angularRate) / (2 * Math.PI) * ticksPerRev)
+    }
+
+    override fun getVelocity() = rawVelocity * directionSign
+
+    override fun getVelocity(unit: AngleUnit) =
+        unit.fromRadians(velocity / ticksPerRev * 2 * Math.PI)
+
+    @Deprecated("Deprecated in Java")
+    override fun setPIDCoefficients(mode: DcMotor.RunMode, pidCoefficients: PIDCoefficients) {
+        pidfCoefficients[mode] = PIDFCoefficients(pidCoefficients.p, pidCoefficients.i, pidCoefficients.d, 0.0)
+    }
+
+    override fun setPIDFCoefficients(mode: DcMotor.RunMode, pidfCoefficients: PIDFCoefficients) {
+        this.pidfCoefficients[mode] = pidfCoefficients
+    }
+
+    override fun setVelocityPIDFCoefficients(p: Double, i: Double, d: Double, f: Double) {
+        pidfCoefficients[DcMotor.RunMode.RUN_USING_ENCODER] = PIDFCoefficients(p, i, d, f)
+    }
+
+    override fun setPositionPIDFCoefficients(p: Double) {
+        pidfCoefficients[DcMotor.RunMode.RUN_TO_POSITION] = PIDFCoefficients(p, 0.0, 0.0, 0.0)
+    }
+
+    @Deprecated("Deprecated in Java")
+    override fun getPIDCoefficients(mode: DcMotor.RunMode): PIDCoefficients {
+        val pidf = getPIDFCoefficients(mode)
+        return PIDCoefficients(pidf.p, pidf.i, pidf.d)
+    }
+
+    override fun getPIDFCoefficients(mode: DcMotor.RunMode): PIDFCoefficients =
+        pidfCoefficients[mode] ?: PIDFCoefficients()
+
+    override fun setTargetPositionTolerance(tolerance: Int) {
+        targetPositionTolerance = tolerance
+    }
+
+    override fun getTargetPositionTolerance() = targetPositionTolerance
+
+    override fun getCurrent(unit: CurrentUnit) = if (unit == CurrentUnit.MILLIAMPS) current * 1000 else current
+
+    override fun getCurrentAlert(unit: CurrentUnit) = if (unit == CurrentUnit.MILLIAMPS) currentAlert * 1000 else currentAlert
+
+    override fun setCurrentAlert(current: Double, unit: CurrentUnit) {
+        currentAlert = if (unit == CurrentUnit.MILLIAMPS) current / 1000 else current
+    }
+
+    override fun isOverCurrent() = current > currentAlert
+
+    override fun getManufacturer() = HardwareDevice.Manufacturer.Other
+
+    override fun getDeviceName() = "Simulated motor $name"
+
+    override fun getConnectionInfo() = SIM_HUB
+
+    override fun getVersion() = 1
+
+    override fun resetDeviceConfigurationForOpMode() {}
+
+    override fun close() {}
+
+    private companion object {
+        /**
+         * The power per encoder count of error used in `RUN_TO_POSITION`.
+         */
+        const val RUN_TO_POSITION_P = 0.01
+    }
+}
+
+/**
+ * A simulated [Servo], which moves to its position instantly.
+ *
+ * @author KG
+ */
+class SimServo(private val name: String) : Servo {
+    private var position = Double.NaN
+    private var direction = Servo.Direction.FORWARD
+    private var min = 0.0
+    private var max = 1.0
+
+    /**
+     * The position actually sent to the servo, after its direction and range are applied, or `NaN`
+     * if it was never set.
+     */
+    val rawPosition: Double
+        get() {
+            val directed = if (direction == Servo.Direction.REVERSE) 1 - position else position
+            return min + directed * (max - min)
+        }
+
+    override fun setPosition(position: Double) {
+        this.position = position.coerceIn(0.0, 1.0)
+    }
+
+    override fun getPosition() = position
+
+    override fun setDirection(direction: Servo.Direction) {
+        this.direction = direction
+    }
+
+    override fun getDirection() = direction
+
+    override fun scaleRange(min: Double, max: Double) {
+        this.min = min
+        this.max = max
+    }
+
+    override fun getController(): ServoController? = null
+
+    override fun getPortNumber() = 0
+
+    override fun getManufacturer() = HardwareDevice.Manufacturer.Other
+
+    override fun getDeviceName() = "Simulated servo $name"
+
+    override fun getConnectionInfo() = SIM_HUB
+
+    override fun getVersion() = 1
+
+    override fun resetDeviceConfigurationForOpMode() {}
+
+    override fun close() {}
+}
+
+/**
+ * A simulated continuous rotation [CRServo], which only stores its power.
+ *
+ * @author KG
+ */
+class SimCRServo(private val name: String) : CRServo {
+    private var power = 0.0
+    private var direction = DcMotorSimple.Direction.FORWARD
+
+    override fun setPower(power: Double) {
+        this.power = power.coerceIn(-1.0, 1.0)
+    }
+
+    override fun getPower() = power
+
+    override fun setDirection(direction: DcMotorSimple.Direction) {
+        this.direction = direction
+    }
+
+    override fun getDirection() = direction
+
+    override fun getController(): ServoController? = null
+
+    override fun getPortNumber() = 0
+
+    override fun getManufacturer() = HardwareDevice.Manufacturer.Other
+
+    override fun getDeviceName() = "Simulated continuous rotation servo $name"
+
+    override fun getConnectionInfo() = SIM_HUB
+
+    override fun getVersion() = 1
+
+    override fun resetDeviceConfigurationForOpMode() {}
+
+    override fun close() {}
+}
+
+/**
+ * A simulated [AnalogInput], whose voltage is set by its [SimModel] (or by hand).
+ *
+ * [AnalogInput] is a class rather than an interface, so this subclasses it without a controller,
+ * and overrides every call that would otherwise reach one.
+ *
+ * @author KG
+ */
+class SimAnalogInput(private val name: String) : AnalogInput(null, 0) {
+    /**
+     * The voltage the input reads.
+     */
+    @Volatile
+    var simVoltage = 0.0
+
+    override fun getVoltage() = simVoltage
+
+    override fun getMaxVoltage() = MAX_VOLTAGE
+
+    override fun getManufacturer() = HardwareDevice.Manufacturer.Other
+
+    override fun getDeviceName() = "Simulated analog input $name"
+
+    override fun getConnectionInfo() = SIM_HUB
+
+    override fun getVersion() = 1
+
+    override fun resetDeviceConfigurationForOpMode() {}
+
+    override fun close() {}
+
+    private companion object {
+        const val MAX_VOLTAGE = 3.3
+    }
+}
+
+/**
+ * A simulated battery [VoltageSensor], whose voltage is set by the [SimRobot].
+ *
+ * @author KG
+ */
+class SimVoltageSensor : VoltageSensor {
+    /**
+     * The voltage the sensor reads.
+     */
+    @Volatile
+    var simVoltage = 12.0
+
+    override fun getVoltage() = simVoltage
+
+    override fun getManufacturer() = HardwareDevice.Manufacturer.Other
+
+    override fun getDeviceName() = "Simulated voltage sensor"
+
+    override fun getConnectionInfo() = SIM_HUB
+
+    override fun getVersion() = 1
+
+    override fun resetDeviceConfigurationForOpMode() {}
+
+    override fun close() {}
+}
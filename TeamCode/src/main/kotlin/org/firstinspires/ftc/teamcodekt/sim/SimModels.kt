@@ -0,0 +1,263 @@
+package org.firstinspires.ftc.teamcodekt.sim
+
+import org.firstinspires.ftc.teamcode.roadrunner.drive.DriveConstants
+import org.firstinspires.ftc.teamcode.roadrunner.drive.StandardTrackingWheelLocalizer
+import org.firstinspires.ftc.teamcode.util.RobotConstants
+import kotlin.math.abs
+import kotlin.math.cos
+import kotlin.math.min
+import kotlin.math.sin
+
+/**
+ * A physics model of part of the robot, stepped once per simulated tick by the [SimRobot]. A model
+ * reads the outputs of its [SimMotor]s, and writes their encoders, velocities, and currents back.
+ *
+ * @author KG
+ */
+interface SimModel {
+    /**
+     * Advances the model.
+     * @param dt The time step, in seconds.
+     * @param volts The battery voltage over the step.
+     */
+    fun step(dt: Double, volts: Double)
+}
+
+/**
+ * A first order DC motor: the shaft speed decays towards the speed the applied voltage (plus any
+ * load, in the same units as power) would hold it at, with time constant [TAU]. An unpowered,
+ * floating motor coasts, decaying [FLOAT_DRAG] times slower.
+ *
+ * The current drawn is proportional to the gap between the applied voltage and the back EMF.
+ *
+ * @author KG
+ */
+internal object MotorPhysics {
+    const val TAU = 0.06
+    const val FLOAT_DRAG = 8.0
+    const val STALL_AMPS = 9.2
+    const val NOMINAL_VOLTS = 12.0
+
+    /**
+     * Steps the given shaft velocity, and sets the motor's current.
+     * @param motor The motor driving the shaft.
+     * @param velocity The shaft velocity, in encoder counts per second.
+     * @param load The external load on the shaft, as a fraction of full power.
+     * @param dt The time step, in seconds.
+     * @param volts The battery voltage.
+     * @return The new shaft velocity.
+     */
+    fun step(motor: SimMotor, velocity: Double, load: Double, dt: Double, volts: Double): Double {
+        val applied = motor.shaftOutput * volts / NOMINAL_VOLTS
+        val isCoasting = applied == 0.0 && !motor.isBraking
+
+        val tau = if (isCoasting) TAU * FLOAT_DRAG else TAU
+        val target = (applied + load) * motor.freeSpeed
+
+        motor.current = if (isCoasting) 0.0 else min(STALL_AMPS, STALL_AMPS * abs(applied - velocity / motor.freeSpeed))
+
+        return velocity + (target - velocity) * min(1.0, dt / tau)
+    }
+}
+
+/**
+ * The lift: three motors geared to one spool, pulled down by gravity, between a hard stop at the
+ * bottom and one at full extension. `L2` is mounted opposite the others, as the code inverts it.
+ *
+ * @author KG
+ */
+class LiftModel(private val motors: Array<SimMotor>, private val mounts: IntArray) : SimModel {
+    /**
+     * The lift's height, in encoder counts.
+     */
+    var height = 0.0
+        private set
+
+    /**
+     * The lift's velocity, in encoder counts per second.
+     */
+    var velocity = 0.0
+        private set
+
+    override fun step(dt: Double, volts: Double) {
+        var next = 0.0
+        for (i in motors.indices) {
+            next += mounts[i] * MotorPhysics.step(motors[i], mounts[i] * velocity, -mounts[i] * HOLD_POWER, dt, volts)
+        }
+        velocity = next / motors.size
+
+        height += velocity * dt
+
+        if (height <= 0.0 && velocity < 0.0 || height >= MAX_HEIGHT && velocity > 0.0) {
+            height = height.coerceIn(0.0, MAX_HEIGHT)
+            velocity = 0.0
+        }
+
+        for (i in motors.indices) {
+            motors[i].rawPosition = mounts[i] * height
+            motors[i].rawVelocity = mounts[i] * velocity
+        }
+    }
+
+    private companion object {
+        /**
+         * The power needed to hold the lift still against gravity.
+         */
+        const val HOLD_POWER = 0.1
+
+        const val MAX_HEIGHT = 2600.0
+    }
+}
+
+/**
+ * The arm: one motor swinging a mass about a pivot, where gravity pulls harder the further the arm
+ * leans from vertical. The absolute encoder (`ARM_ENC`) reads out the arm's angle as a voltage,
+ * linear in the arm's position, matching the mapping `Arm.getArmPosition` inverts.
+ *
+ * @author KG
+ */
+class ArmModel(private val motor: SimMotor, private val sensor: SimAnalogInput) : SimModel {
+    /**
+     * The arm's angle from vertical, in motor encoder counts.
+     */
+    var position = 0.0
+        private set
+
+    private var velocity = 0.0
+
+    override fun step(dt: Double, volts: Double) {
+        val angle = position / motor.ticksPerRev * 2 * Math.PI
+        velocity = MotorPhysics.step(motor, velocity, GRAVITY_POWER * sin(angle), dt, volts)
+        position += velocity * dt
+
+        motor.rawPosition = position
+        motor.rawVelocity = velocity
+
+        sensor.simVoltage = sensorVoltage()
+    }
+
+    private fun sensorVoltage(): Double {
+        val vertical = RobotConstants.Arm.VERTICAL
+        val potPerTick = (RobotConstants.Arm.BACKWARDS_TELE - vertical) / RobotConstants.Arm.ENC_BACKWARDS
+        val potPosition = vertical + potPerTick * position
+
+        val vb = RobotConstants.Arm.VOLTAGE_BACKWARDS
+        val vf = RobotConstants.Arm.VOLTAGE_FORWARDS
+        return potPosition / (2.5 * 480) + 0.5 + vb / (vf - vb)
+    }
+
+    private companion object {
+        /**
+         * The power needed to hold the arm still when horizontal.
+         */
+        const val GRAVITY_POWER = 0.15
+    }
+}
+
+/**
+ * The mecanum drivetrain, integrated into a field-relative pose, plus the three dead wheels of the
+ * [StandardTrackingWheelLocalizer], which share encoder ports with `BR`, `FL`, and `BL`.
+ *
+ * The wheels are taken in the order `FL`, `FR`, `BL`, `BR`; the left ones are mounted reversed,
+ * matching `DriveMotors`.
+ *
+ * @author KG
+ */
+class MecanumModel(private val motors: Array<SimMotor>) : SimModel {
+    private val mounts = intArrayOf(-1, 1, -1, 1)
+    private val shaftVelocities = DoubleArray(4)
+
+    /**
+     * The robot's field-relative pose; x and y in inches, heading in radians.
+     */
+    var x = 0.0
+    var y = 0.0
+    var heading = 0.0
+
+    private var leftWheel = 0.0
+    private var rightWheel = 0.0
+    private var frontWheel = 0.0
+
+    override fun step(dt: Double, volts: Double) {
+        val surface = DoubleArray(4)
+        for (i in motors.indices) {
+            shaftVelocities[i] = MotorPhysics.step(motors[i], shaftVelocities[i], 0.0, dt, volts)
+            surface[i] = mounts[i] * DriveConstants.encoderTicksToInches(shaftVelocities[i])
+        }
+
+        val (fl, fr, bl, br) = surface.toList()
+        val k = DriveConstants.TRACK_WIDTH
+
+        val vx = (fl + fr + bl + br) / 4
+        val vy = (-fl + fr + bl - br) / 4
+        val omega = (-fl + fr - bl + br) / (4 * k)
+
+        x += (vx * cos(heading) - vy * sin(heading)) * dt
+        y += (vx * sin(heading) + vy * cos(heading)) * dt
+        heading += omega * dt
+
+        val halfLateral = StandardTrackingWheelLocalizer.LATERAL_DISTANCE / 2
+
+        val leftRate = vx - halfLateral * omega
+        val rightRate = vx + halfLateral * omega
+        val frontRate = vy + StandardTrackingWheelLocalizer.FORWARD_OFFSET * omega
+
+        leftWheel += leftRate * dt
+        rightWheel += rightRate * dt
+        frontWheel += frontRate * dt
+
+        for (i in motors.indices) {
+            motors[i].rawPosition += shaftVelocities[i] * dt
+            motors[i].rawVelocity = shaftVelocities[i]
+        }
+
+        motors[BR].rawPosition = deadWheelTicks(leftWheel, StandardTrackingWheelLocalizer.X_MULTIPLIER)
+        motors[BR].rawVelocity = deadWheelTicks(leftRate, StandardTrackingWheelLocalizer.X_MULTIPLIER)
+        motors[FL].rawPosition = deadWheelTicks(rightWheel, StandardTrackingWheelLocalizer.X_MULTIPLIER)
+        motors[FL].rawVelocity = deadWheelTicks(rightRate, StandardTrackingWheelLocalizer.X_MULTIPLIER)
+        motors[BL].rawPosition = deadWheelTicks(frontWheel, StandardTrackingWheelLocalizer.Y_MULTIPLIER)
+        motors[BL].rawVelocity = deadWheelTicks(frontRate, StandardTrackingWheelLocalizer.Y_MULTIPLIER)
+    }
+
+    /**
+     * Converts a dead wheel's travel in inches to the encoder counts the localizer expects, undoing
+     * its calibration multiplier.
+     */
+    private fun deadWheelTicks(inches: Double, multiplier: Double): Double {
+        val inchesPerTick = 2 * Math.PI * StandardTrackingWheelLocalizer.WHEEL_RADIUS *
+            StandardTrackingWheelLocalizer.GEAR_RATIO / StandardTrackingWheelLocalizer.TICKS_PER_REV
+        return inches / multiplier / inchesPerTick
+    }
+
+    private companion object {
+        const val FL = 0
+        const val BL = 2
+        const val BR = 3
+    }
+}
+
+/**
+ * The battery: a fixed open circuit voltage behind an internal resistance, sagging with the total
+ * current drawn by every motor.
+ *
+ * @author KG
+ */
+class BatteryModel(private val motors: Collection<SimMotor>) {
+    /**
+     * The battery's terminal voltage as of the last [update].
+     */
+    var volts = OPEN_CIRCUIT_VOLTS
+        private set
+
+    /**
+     * Recomputes the voltage from the motors' currents.
+     */
+    fun update() {
+        volts = OPEN_CIRCUIT_VOLTS - INTERNAL_RESISTANCE * motors.sumOf { it.current }
+    }
+
+    private companion object {
+        const val OPEN_CIRCUIT_VOLTS = 13.0
+        const val INTERNAL_RESISTANCE = 0.04
+    }
+}
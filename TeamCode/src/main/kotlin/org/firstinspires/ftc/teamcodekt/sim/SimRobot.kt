@@ -0,0 +1,107 @@
+package org.firstinspires.ftc.teamcodekt.sim
+
+import com.arcrobotics.ftclib.hardware.motors.Motor
+import com.qualcomm.robotcore.hardware.HardwareDevice
+import com.qualcomm.robotcore.hardware.HardwareMap
+import org.firstinspires.ftc.teamcode.roadrunner.drive.DriveConstants
+
+/**
+ * The whole robot, simulated: a [HardwareMap] holding a fake of every device in the robot's config,
+ * under the same names, plus the [SimModel]s that move them, all on one [SimClock].
+ *
+ * Components take the [hardwareMap] like any other, and never know the difference. Nothing moves
+ * until [step] is called; the [SimRunner] does so once per [Scheduler][org.firstinspires.ftc.teamcodekt.components.scheduler.Scheduler] tick.
+ *
+ * Java usage example:
+ * ```java
+ * SimRobot robot = new SimRobot();
+ * Lift lift = new Lift(robot.getHardwareMap(), new VoltageScaler(robot.getHardwareMap()));
+ *
+ * lift.goToHigh();
+ * for (int i = 0; i < 200; i++) {
+ *     lift.update(telemetry);
+ *     robot.step(10_000_000);
+ * }
+ * ```
+ *
+ * @author KG
+ */
+class SimRobot @JvmOverloads constructor(val clock: SimClock = SimClock()) {
+    /**
+     * The hardware map holding every simulated device.
+     */
+    val hardwareMap = HardwareMap(null, null)
+
+    val frontLeft = motor("FL", DriveConstants.TICKS_PER_REV, DriveConstants.MAX_RPM)
+    val frontRight = motor("FR", DriveConstants.TICKS_PER_REV, DriveConstants.MAX_RPM)
+    val backLeft = motor("BL", DriveConstants.TICKS_PER_REV, DriveConstants.MAX_RPM)
+    val backRight = motor("BR", DriveConstants.TICKS_PER_REV, DriveConstants.MAX_RPM)
+
+    val lift1 = motor("L1", Motor.GoBILDA.RPM_435.getCPR(), Motor.GoBILDA.RPM_435.getRPM())
+    val lift2 = motor("L2", Motor.GoBILDA.RPM_435.getCPR(), Motor.GoBILDA.RPM_435.getRPM())
+    val lift3 = motor("L3", Motor.GoBILDA.RPM_435.getCPR(), Motor.GoBILDA.RPM_435.getRPM())
+
+    val armMotor = motor("AR", Motor.GoBILDA.RPM_84.getCPR(), Motor.GoBILDA.RPM_84.getRPM())
+
+    val wrist = SimServo("WR").also { hardwareMap.servo.put("WR", it); put("WR", it) }
+    val claw = SimServo("CL").also { hardwareMap.servo.put("CL", it); put("CL", it) }
+    val intake = SimCRServo("IN").also { hardwareMap.crservo.put("IN", it); put("IN", it) }
+
+    val armEncoder = analogInput("ARM_ENC")
+    val frontDistanceSensor = analogInput("F_USDS")
+
+    val voltageSensor = SimVoltageSensor().also {
+        hardwareMap.voltageSensor.put("Control Hub", it)
+        put("Control Hub", it)
+    }
+
+    val drive = MecanumModel(arrayOf(frontLeft, frontRight, backLeft, backRight))
+    val lift = LiftModel(arrayOf(lift1, lift2, lift3), intArrayOf(1, -1, 1))
+    val arm = ArmModel(armMotor, armEncoder)
+
+    val battery = BatteryModel(listOf(frontLeft, frontRight, backLeft, backRight, lift1, lift2, lift3, armMotor))
+
+    private val models = listOf(drive, lift, arm)
+
+    /**
+     * The distance the front distance sensor reads, in centimeters.
+     */
+    var frontDistanceCm = 100.0
+        set(value) {
+            field = value
+            frontDistanceSensor.simVoltage = (value + 37.1034) / 239.664
+        }
+
+    init {
+        frontDistanceCm = frontDistanceCm
+        step(0)
+    }
+
+    /**
+     * Advances the clock, then every model, by the given time.
+     * @param dtNanos The time step, in nanoseconds.
+     */
+    fun step(dtNanos: Long) {
+        clock.advance(dtNanos)
+
+        val dt = dtNanos / 1e9
+        val volts = battery.volts
+        models.forEach { it.step(dt, volts) }
+
+        battery.update()
+        voltageSensor.simVoltage = battery.volts
+    }
+
+    private fun motor(name: String, ticksPerRev: Double, rpm: Double) =
+        SimMotor(name, ticksPerRev, rpm / 60 * ticksPerRev).also {
+            hardwareMap.dcMotor.put(name, it)
+            put(name, it)
+        }
+
+    private fun analogInput(name: String) = SimAnalogInput(name).also {
+        hardwareMap.analogInput.put(name, it)
+        put(name, it)
+    }
+
+    private fun put(name: String, device: HardwareDevice) = hardwareMap.put(name, device)
+}
@@ -0,0 +1,194 @@
+package org.firstinspires.ftc.teamcodekt.sim
+
+import com.qualcomm.robotcore.eventloop.opmode.LinearOpMode
+import com.qualcomm.robotcore.hardware.Gamepad
+import org.firstinspires.ftc.robotcore.external.Telemetry
+import org.firstinspires.ftc.teamcodekt.components.hardware.AnalogPoller
+import org.firstinspires.ftc.teamcodekt.components.hardware.BatteryVoltage
+import org.firstinspires.ftc.teamcodekt.components.hardware.CurrentMonitor
+import org.firstinspires.ftc.teamcodekt.components.scheduler.Scheduler
+import org.firstinspires.ftc.teamcodekt.components.scheduler.SchedulerClock
+import java.lang.reflect.Proxy
+
+/**
+ * Runs a [Scheduler] driven [LinearOpMode] against a [SimRobot] on its virtual clock, so that a
+ * whole match period is simulated in however long the code takes to run, not in real time.
+ *
+ * Every [Scheduler] tick advances the robot by [stepNanos]; the physics are stepped at the start of
+ * the tick, before the snapshots, so the OpMode reads the robot as it is at the tick's time. The
+ * [BatteryVoltage] and [CurrentMonitor] then sample on the tick too, instead of on their background
+ * threads, so that their periods are kept in simulated time (the [AnalogPoller] already reads on
+ * the main thread). Once
+ * the given duration has been simulated, the OpMode is stopped as if the stop button was pressed.
+ *
+ * The OpMode is run unmodified on the calling thread: its [hardwareMap][LinearOpMode.hardwareMap] is
+ * the robot's, its gamepads are driven by the given [SimInputs], and its telemetry is recorded into
+ * [telemetryData] instead of being sent to the driver station.
+ *
+ * Java usage example:
+ * ```java
+ * SimRunner runner = new SimRunner(new SimRobot());
+ *
+ * SimResult result = runner.run(new RogueCompOp(), 30, (seconds, gamepad1, gamepad2) -> {
+ *     gamepad2.dpad_up = seconds > 1 && seconds < 1.5;
+ * });
+ *
+ * System.out.println(result);
+ * ```
+ *
+ * @param robot The robot to run the OpMode on.
+ * @param stepNanos The simulated time per [Scheduler] tick, in nanoseconds.
+ *
+ * @author KG
+ */
+class SimRunner @JvmOverloads constructor(
+    val robot: SimRobot,
+    private val stepNanos: Long = 10_000_000,
+) {
+    val gamepad1 = Gamepad()
+    val gamepad2 = Gamepad()
+
+    /**
+     * The latest value of every telemetry caption the OpMode added.
+     */
+    val telemetryData = LinkedHashMap<String, Any?>()
+
+    /**
+     * Runs the given OpMode until the given duration has been simulated, or until it returns.
+     * @param opMode The OpMode to run; it must not have been run before.
+     * @param seconds The simulated time to run it for, in seconds.
+     * @param inputs Sets the gamepads at the start of every tick.
+     * @return How long was simulated, and how long it took.
+     */
+    @JvmOverloads
+    fun run(opMode: LinearOpMode, seconds: Double, inputs: SimInputs = SimInputs { _, _, _ -> }): SimResult {
+        val startNanos = robot.clock.nanos
+        val endNanos = startNanos + (seconds * 1e9).toLong()
+        var ticks = 0L
+
+        val wallSeconds = launch(opMode, {
+            if (robot.clock.nanos >= endNanos) {
+                Thread.currentThread().interrupt()
+            } else {
+                robot.step(stepNanos)
+                inputs.update(robot.clock.elapsedSeconds, gamepad1, gamepad2)
+                ticks++
+            }
+        })
+
+        return SimResult((robot.clock.nanos - startNanos) / 1e9, wallSeconds, ticks)
+    }
+
+    /**
+     * Runs the given OpMode on the calling thread against the [robot], on its clock, until it
+     * returns or the thread is interrupted, then tears everything down.
+     * @param snapshot Hooked as the first snapshot stage of every tick.
+     * @param flush If not `null`, hooked as the first flush stage of every tick.
+     * @return The real time the run took, in seconds.
+     */
+    internal fun launch(opMode: LinearOpMode, snapshot: Runnable, flush: Runnable? = null): Double {
+        SchedulerClock.use(robot.clock)
+        Scheduler.reset()
+
+        opMode.hardwareMap = robot.hardwareMap
+        opMode.telemetry = telemetry()
+        opMode.gamepad1 = gamepad1
+        opMode.gamepad2 = gamepad2
+
+        Scheduler.hookSnapshot(snapshot)
+        Scheduler.hookSnapshot {
+            BatteryVoltage.sampleIfDue(robot.clock.nanos)
+            CurrentMonitor.sampleIfDue(robot.clock.nanos)
+        }
+        flush?.let { Scheduler.hookFlush(it) }
+
+        val wallStart = System.nanoTime()
+        try {
+            markStarted(opMode)
+            opMode.runOpMode()
+        } catch (e: InterruptedException) {
+            // Stopped
+        } finally {
+            Thread.interrupted()
+            Scheduler.reset()
+            SchedulerClock.use(null)
+            AnalogPoller.reset()
+            BatteryVoltage.stop()
+            CurrentMonitor.reset()
+        }
+        return (System.nanoTime() - wallStart) / 1e9
+    }
+
+    /**
+     * Lets [LinearOpMode.waitForStart] return straight away. The flag it waits on is normally only
+     * set by the SDK's OpMode manager, which isn't running here.
+     */
+    private fun markStarted(opMode: LinearOpMode) {
+        LinearOpMode::class.java.getDeclaredField("isStarted").apply {
+            isAccessible = true
+            setBoolean(opMode, true)
+        }
+    }
+
+    /**
+     * Creates a [Telemetry] that records what's added to it, and otherwise does nothing.
+     */
+    private fun telemetry() = stub(Telemetry::class.java) { method, args ->
+        if (method.name == "addData" && args != null && args.size >= 2) {
+            telemetryData[args[0].toString()] = args.last()
+        }
+    }
+
+    /**
+     * Creates a do-nothing implementation of the given interface, returning other stubs for any
+     * method returning an interface (so calls can be chained), and defaults for everything else.
+     */
+    private fun <T> stub(type: Class<T>, onCall: (java.lang.reflect.Method, Array<Any?>?) -> Unit = { _, _ -> }): T {
+        val proxy = Proxy.newProxyInstance(type.classLoader, arrayOf(type)) { self, method, args ->
+            when (method.name) {
+                "equals" -> return@newProxyInstance self === args?.get(0)
+                "hashCode" -> return@newProxyInstance System.identityHashCode(self)
+                "toString" -> return@newProxyInstance "Simulated ${type.simpleName}"
+            }
+            onCall(method, args)
+
+            val returnType = method.returnType
+            when {
+                returnType.isInstance(self) -> self
+                returnType.isInterface -> stub(returnType)
+                returnType == Boolean::class.javaPrimitiveType -> false
+                returnType == Int::class.javaPrimitiveType -> 0
+                returnType == Long::class.javaPrimitiveType -> 0L
+                returnType == Double::class.javaPrimitiveType -> 0.0
+                returnType == Float::class.javaPrimitiveType -> 0f
+                returnType == String::class.java -> ""
+                else -> null
+            }
+        }
+        return type.cast(proxy)
+    }
+}
+
+/**
+ * Sets the gamepads at the start of each simulated tick.
+ */
+fun interface SimInputs {
+    /**
+     * @param seconds The simulated time since the robot was created, in seconds.
+     */
+    fun update(seconds: Double, gamepad1: Gamepad, gamepad2: Gamepad)
+}
+
+/**
+ * The outcome of a [SimRunner.run].
+ *
+ * @param simulatedSeconds The simulated time that passed, in seconds.
+ * @param wallSeconds The real time the run took, in seconds.
+ * @param ticks The number of [Scheduler] ticks run.
+ */
+data class SimResult(val simulatedSeconds: Double, val wallSeconds: Double, val ticks: Long) {
+    /**
+     * How many times faster than real time the run was.
+     */
+    val realtimeFactor get() = simulatedSeconds / wallSeconds
+}
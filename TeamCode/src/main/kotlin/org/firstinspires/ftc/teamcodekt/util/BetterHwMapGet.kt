@@ -1,6 +1,7 @@
 package org.firstinspires.ftc.teamcodekt.util
 
 import com.qualcomm.robotcore.hardware.HardwareMap
+import org.firstinspires.ftc.teamcodekt.components.hardware.HardwareProfiler
 
 /**
  * Syntactic sugar for [HardwareMap.get].
@@ -22,8 +23,15 @@ import com.qualcomm.robotcore.hardware.HardwareMap
  * _Ok in hindsight this doesn't appear as useful as I thought, but it's cooler and makes me feel
  * smart so shut up_
  *
+ * The component is also [wrapped][HardwareProfiler.wrap] so that its hardware calls are timed, as
+ * long as the wrapper is still a [T].
+ *
  * @param T The type of the component you want to get.
  * @param name The name of the component you want to get.
  * @author KG
  */
-inline fun <reified T> HardwareMap._get(name: String): T = get(T::class.java, name)
\ No newline at end of file
+inline fun <reified T> HardwareMap._get(name: String): T {
+    val device = get(T::class.java, name)
+    val wrapped = HardwareProfiler.wrap(device, name)
+    return if (wrapped is T) wrapped else device
+}
\ No newline at end of file
@@ -0,0 +1,143 @@
+package org.firstinspires.ftc.teamcodekt.util
+
+import com.qualcomm.robotcore.util.RobotLog
+import org.firstinspires.ftc.robotcore.external.Telemetry
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.CompletionException
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.atomic.AtomicInteger
+
+/**
+ * Builds an OpMode's hardware as a set of named stages, running every stage whose dependencies are
+ * done concurrently on a small thread pool, instead of one after the other.
+ *
+ * Each stage declares the stages it depends on, which must have been added before it (so the plan
+ * can never have a cycle). [run] starts every stage as soon as its dependencies finish, blocks
+ * until all of them are done, then reports how long each one took, and when it started, to the
+ * telemetry and robot log. If any stage fails, the stages depending on it are skipped, and the
+ * first failure is rethrown from [run].
+ *
+ * Stages should only share state through their dependencies; anything they hook into the
+ * `Scheduler` is safe to hook concurrently.
+ *
+ * Java usage example:
+ * ```java
+ * InitOrchestrator init = new InitOrchestrator();
+ *
+ * init.stage("camera", this::openCamera);
+ * init.stage("drive", () -> drive = new SampleMecanumDrive(hardwareMap));
+ * init.stage("voltage", () -> voltageScaler = new VoltageScaler(hardwareMap));
+ * init.stage("lift", () -> lift = new Lift(hardwareMap, voltageScaler), "voltage");
+ *
+ * init.run(telemetry);
+ * ```
+ *
+ * @param threads The number of stages that may run at once.
+ *
+ * @author KG
+ */
+class InitOrchestrator @JvmOverloads constructor(private val threads: Int = DEFAULT_THREADS) {
+    private val stages = LinkedHashMap<String, Stage>()
+
+    /**
+     * The time [run] took, in milliseconds, or `0` if it hasn't been run.
+     */
+    var totalMillis = 0.0
+        private set
+
+    /**
+     * Adds a stage to the plan.
+     * @param name The stage's name, used to depend on it and in the report.
+     * @param action Builds the stage's part of the robot.
+     * @param dependencies The names of the stages that must finish before this one starts.
+     */
+    fun stage(name: String, action: Runnable, vararg dependencies: String) {
+        require(name !in stages) { "Init stage '$name' was already added" }
+
+        val deps = dependencies.map {
+            stages[it] ?: throw IllegalArgumentException("Init stage '$name' depends on '$it', which hasn't been added yet")
+        }
+        stages[name] = Stage(name, action, deps)
+    }
+
+    /**
+     * Runs every stage, blocking until they're all done, then reports their timings.
+     * @param telemetry The telemetry to report to, if any.
+     * @throws InterruptedException If interrupted while waiting (e.g. the OpMode was stopped).
+     */
+    @JvmOverloads
+    @Throws(InterruptedException::class)
+    fun run(telemetry: Telemetry? = null) {
+        val threadCount = AtomicInteger()
+        val executor = Executors.newFixedThreadPool(threads) { runnable ->
+            Thread(runnable, "InitOrchestrator-${threadCount.incrementAndGet()}").apply { isDaemon = true }
+        }
+
+        val startTime = System.nanoTime()
+        try {
+            for (stage in stages.values) {
+                stage.schedule(executor, startTime)
+            }
+            CompletableFuture.allOf(*stages.values.map { it.future }.toTypedArray()).get()
+        } catch (e: ExecutionException) {
+            throw rootCause(e)
+        } finally {
+            executor.shutdownNow()
+            totalMillis = (System.nanoTime() - startTime) / 1e6
+            report(telemetry)
+        }
+    }
+
+    private fun report(telemetry: Telemetry?) {
+        for (stage in stages.values) {
+            val summary = if (stage.endMillis >= 0) {
+                "%.0f ms (at %.0f ms)".format(stage.endMillis - stage.startMillis, stage.startMillis)
+            } else {
+                "not run"
+            }
+            telemetry?.addData("Init ${stage.name}", summary)
+            RobotLog.ii("InitOrchestrator", "%-20s %s", stage.name, summary)
+        }
+
+        val serialMillis = stages.values.filter { it.endMillis >= 0 }.sumOf { it.endMillis - it.startMillis }
+        telemetry?.addData("Init total", "%.0f ms (%.0f ms if serial)".format(totalMillis, serialMillis))
+        RobotLog.ii("InitOrchestrator", "Total %.0f ms (%.0f ms if serial)", totalMillis, serialMillis)
+    }
+
+    private fun rootCause(e: Throwable): Throwable {
+        var cause = e
+        while ((cause is ExecutionException || cause is CompletionException) && cause.cause != null) {
+            cause = cause.cause!!
+        }
+        return cause
+    }
+
+    private class Stage(val name: String, val action: Runnable, val dependencies: List<Stage>) {
+        lateinit var future: CompletableFuture<Void>
+
+        /**
+         * When the stage started and finished, in milliseconds since [run] started; `-1` until then.
+         */
+        @Volatile
+        var startMillis = -1.0
+
+        @Volatile
+        var endMillis = -1.0
+
+        fun schedule(executor: ExecutorService, runStart: Long) {
+            val ready = CompletableFuture.allOf(*dependencies.map { it.future }.toTypedArray())
+
+            future = ready.thenRunAsync({
+                startMillis = (System.nanoTime() - runStart) / 1e6
+                action.run()
+                endMillis = (System.nanoTime() - runStart) / 1e6
+            }, executor)
+        }
+    }
+
+    private companion object {
+        const val DEFAULT_THREADS = 4
+    }
+}
@@ -0,0 +1,55 @@
+package org.firstinspires.ftc.teamcodekt.util
+
+import com.qualcomm.robotcore.eventloop.opmode.OpMode
+import com.qualcomm.robotcore.eventloop.opmode.OpModeManagerNotifier
+import org.firstinspires.ftc.robotcore.internal.opmode.OpModeManagerImpl
+import org.firstinspires.ftc.robotcore.internal.system.AppUtil
+
+/**
+ * Runs a callback after every OpMode stops, for singletons (the [Scheduler][org.firstinspires.ftc.teamcodekt.components.scheduler.Scheduler],
+ * and the background hardware services) whose state would otherwise outlive the OpMode that
+ * created it.
+ *
+ * The callback is registered with the OpMode manager on the first call to [register]; later calls
+ * do nothing. Without an activity (e.g. in a simulation), nothing is registered, and the owner is
+ * expected to tear itself down.
+ *
+ * Kotlin usage example:
+ * ```kotlin
+ * object SomeService {
+ *     private val teardown = OpModeTeardown(::stop)
+ *
+ *     fun start() {
+ *         // ...
+ *         teardown.register()
+ *     }
+ * }
+ * ```
+ *
+ * @param onStop Called after every OpMode stops.
+ *
+ * @author KG
+ */
+class OpModeTeardown(private val onStop: () -> Unit) : OpModeManagerNotifier.Notifications {
+    private var isRegistered = false
+
+    /**
+     * Registers this with the OpMode manager, if not already registered.
+     */
+    @Synchronized
+    fun register() {
+        if (isRegistered) {
+            return
+        }
+
+        val activity = AppUtil.getInstance().activity ?: return
+        OpModeManagerImpl.getOpModeManagerOfActivity(activity)?.registerListener(this)
+        isRegistered = true
+    }
+
+    override fun onOpModePreInit(opMode: OpMode) {}
+
+    override fun onOpModePreStart(opMode: OpMode) {}
+
+    override fun onOpModePostStop(opMode: OpMode) = onStop()
+}